@@ -9,9 +9,13 @@ CREATE TABLE product (
     price         NUMBER,
     star_rating  NUMBER,
     image_url     VARCHAR2(100),
+    version       NUMBER DEFAULT 0 NOT NULL,
     PRIMARY KEY ( product_id )
 );
 
+-- Optimistic lock column for databases created before it existed
+--ALTER TABLE product ADD version NUMBER DEFAULT 0 NOT NULL;
+
 ALTER TABLE product MODIFY
     product_id NUMBER
         GENERATED BY DEFAULT ON NULL AS IDENTITY;
@@ -24,6 +28,64 @@ CREATE TABLE hibernate_sequence (
 
 --DROP TABLE hibernate_sequence;
 
+-- Product id sequence, Hibernate allocates 50 ids per call (pooled-lo optimizer)
+CREATE SEQUENCE next_val START WITH 11 INCREMENT BY 50;
+
+--DROP SEQUENCE next_val;
+
+-- Indexes used by the product grid filter (prefix search and range predicates)
+CREATE INDEX product_name_lower_idx ON product ( LOWER(product_name) );
+
+CREATE INDEX product_code_lower_idx ON product ( LOWER(product_code) );
+
+CREATE INDEX product_price_idx ON product ( price );
+
+CREATE INDEX product_star_rating_idx ON product ( star_rating );
+
+CREATE INDEX product_release_date_idx ON product ( release_date );
+
+-- Change data capture: the trigger below logs every insert, update and delete of a product,
+-- ProductChangePoller tails the log by change_id and applies the changes to the caches and indexes
+CREATE TABLE product_change_log (
+    change_id   NUMBER NOT NULL,
+    product_id  NUMBER NOT NULL,
+    operation   CHAR(1) NOT NULL,
+    version     NUMBER,
+    changed_at  TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL,
+    PRIMARY KEY ( change_id )
+);
+
+--DROP TABLE product_change_log;
+
+-- Ids are handed out in statement order but may commit in another order, the poller waits for gaps
+CREATE SEQUENCE product_change_seq START WITH 1 INCREMENT BY 1;
+
+--DROP SEQUENCE product_change_seq;
+
+-- Entries older than product.cdc.retention-hours are purged by the poller
+CREATE INDEX product_change_changed_at_idx ON product_change_log ( changed_at );
+
+CREATE OR REPLACE TRIGGER product_change_trg
+    AFTER INSERT OR UPDATE OR DELETE ON product
+    FOR EACH ROW
+DECLARE
+    change_operation CHAR(1);
+BEGIN
+    IF INSERTING THEN
+        change_operation := 'I';
+    ELSIF UPDATING THEN
+        change_operation := 'U';
+    ELSE
+        change_operation := 'D';
+    END IF;
+    INSERT INTO product_change_log ( change_id, product_id, operation, version )
+    VALUES ( product_change_seq.NEXTVAL, NVL(:NEW.product_id, :OLD.product_id), change_operation,
+             NVL(:NEW.version, :OLD.version) );
+END;
+/
+
+--DROP TRIGGER product_change_trg;
+
 INSERT INTO product (
     product_name,
     product_code,
@@ -0,0 +1,37 @@
+package com.vaadin.application.benchmark;
+
+import com.vaadin.application.Application;
+import com.vaadin.application.perf.CatalogGenerator;
+import org.springframework.boot.Banner;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Application context in the perf profile, on an embedded H2 database seeded with a generated catalog
+ *
+ * @author tailam
+ */
+public final class BenchmarkContext {
+
+    public static final long SEED = CatalogGenerator.DEFAULT_SEED;
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Start the application on a random port, the catalog is seeded before the caches are warmed
+     *
+     * @return context
+     */
+    public static ConfigurableApplicationContext start(int catalogSize) {
+        return new SpringApplicationBuilder(Application.class)
+                .bannerMode(Banner.Mode.OFF)
+                .profiles("perf")
+                .run("--server.port=0",
+                        // Production mode keeps the frontend dev server out of the benchmark JVM
+                        "--vaadin.productionMode=true",
+                        "--product.perf.catalog-size=" + catalogSize,
+                        "--product.perf.seed=" + SEED,
+                        "--logging.level.root=warn");
+    }
+}
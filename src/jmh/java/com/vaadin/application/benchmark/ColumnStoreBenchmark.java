@@ -0,0 +1,93 @@
+package com.vaadin.application.benchmark;
+
+import com.vaadin.application.columnar.ProductColumnStore;
+import com.vaadin.application.model.Product;
+import com.vaadin.application.perf.CatalogGenerator;
+import com.vaadin.application.repository.ProductFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Range filter, sort and histograms over a List of Product objects against the columnar store
+ *
+ * @author tailam
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ColumnStoreBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(ColumnStoreBenchmark.class);
+    private static final ProductFilter FILTER = ProductFilter.parse("price:100..1500 rating:2..");
+
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private List<Product> products;
+    private ProductColumnStore productColumnStore;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = new CatalogGenerator(BenchmarkContext.SEED).generate(catalogSize);
+        productColumnStore = new ProductColumnStore(null);
+        productColumnStore.onProductsImported(products);
+        logger.info("{} products: columns about {} KB", catalogSize, productColumnStore.estimateBytes() / 1024);
+    }
+
+    @Benchmark
+    public int[] filterAndSortObjects() {
+        return products.stream()
+                .filter(product -> product.getPrice() >= 100 && product.getPrice() <= 1500
+                        && product.getStarRating() >= 2)
+                .sorted(Comparator.comparing(Product::getPrice).reversed()
+                        .thenComparing(Product::getProductId))
+                .mapToInt(Product::getProductId)
+                .toArray();
+    }
+
+    @Benchmark
+    public int[] filterAndSortColumns() {
+        return productColumnStore.query(FILTER, "price", false);
+    }
+
+    @Benchmark
+    public Map<Integer, Long> releaseYearsObjects() {
+        return products.stream().collect(Collectors.groupingBy(product -> Instant.ofEpochMilli(
+                product.getReleaseDate().getTime()).atZone(ZoneId.systemDefault()).getYear(),
+                TreeMap::new, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> releaseYearsColumns() {
+        return productColumnStore.countByReleaseYear();
+    }
+
+    @Benchmark
+    public Map<Integer, Long> priceBucketsObjects() {
+        return products.stream().collect(Collectors.groupingBy(
+                product -> (int) Math.floor(product.getPrice() / 100), TreeMap::new, Collectors.counting()));
+    }
+
+    @Benchmark
+    public Map<Integer, Long> priceBucketsColumns() {
+        return productColumnStore.countByPriceBucket(100);
+    }
+}
@@ -0,0 +1,98 @@
+package com.vaadin.application.benchmark;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.perf.CatalogGenerator;
+import org.ehcache.Cache;
+import org.ehcache.PersistentCacheManager;
+import org.ehcache.config.ResourcePools;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.EntryUnit;
+import org.ehcache.config.units.MemoryUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ehcache get and put of Product served by the heap, offheap or disk tier
+ *
+ * @author tailam
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EhcacheTierBenchmark {
+
+    private static final int ENTRIES = 10000;
+
+    @Param({"heap", "offheap", "disk"})
+    public String tier;
+
+    private PersistentCacheManager cacheManager;
+    private Cache<Integer, Product> cache;
+    private List<Product> products;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        File directory = Files.createTempDirectory("ehcache-benchmark").toFile();
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .with(CacheManagerBuilder.persistence(directory))
+                .withCache("products", CacheConfigurationBuilder.newCacheConfigurationBuilder(
+                        Integer.class, Product.class, resourcePools()))
+                .build(true);
+        cache = cacheManager.getCache("products", Integer.class, Product.class);
+        products = new CatalogGenerator(BenchmarkContext.SEED).generate(ENTRIES);
+        products.forEach(product -> cache.put(product.getProductId(), product));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        cacheManager.close();
+        cacheManager.destroy();
+    }
+
+    @Benchmark
+    public Product get() {
+        return cache.get(nextId());
+    }
+
+    @Benchmark
+    public void put() {
+        Product product = products.get(nextId() - 1);
+        cache.put(product.getProductId(), product);
+    }
+
+    private int nextId() {
+        next = next % ENTRIES + 1;
+        return next;
+    }
+
+    private ResourcePools resourcePools() {
+        switch (tier) {
+            case "offheap":
+                // A one entry heap keeps nearly every read on the offheap tier
+                return ResourcePoolsBuilder.newResourcePoolsBuilder()
+                        .heap(1, EntryUnit.ENTRIES).offheap(64, MemoryUnit.MB).build();
+            case "disk":
+                return ResourcePoolsBuilder.newResourcePoolsBuilder()
+                        .heap(1, EntryUnit.ENTRIES).disk(256, MemoryUnit.MB, false).build();
+            default:
+                return ResourcePoolsBuilder.heap(ENTRIES).build();
+        }
+    }
+}
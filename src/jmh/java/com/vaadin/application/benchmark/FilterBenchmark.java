@@ -0,0 +1,73 @@
+package com.vaadin.application.benchmark;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.perf.CatalogGenerator;
+import com.vaadin.application.search.ProductSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grid filter: the former per-keystroke contains() predicate against the trigram search index
+ *
+ * @author tailam
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilterBenchmark {
+
+    // Rotated so the search index never answers from its last-query memo
+    private static final String[] QUERIES = {"ham", "steel saw", "xbox", "2019", "carbon", "iph", "12.5", "rake"};
+
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private List<Product> products;
+    private ProductSearchIndex productSearchIndex;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        products = new CatalogGenerator(BenchmarkContext.SEED).generate(catalogSize);
+        productSearchIndex = new ProductSearchIndex(null);
+        products.forEach(productSearchIndex::index);
+    }
+
+    @Benchmark
+    public int containsPredicate() {
+        String filter = nextQuery();
+        int matches = 0;
+        for (Product product : products) {
+            if (product.getProductName().toLowerCase().contains(filter.toLowerCase()) ||
+                    product.getProductCode().toLowerCase().contains(filter.toLowerCase()) ||
+                    product.getDescription().toLowerCase().contains(filter.toLowerCase()) ||
+                    product.getReleaseDate().toString().contains(filter) ||
+                    product.getPrice().toString().contains(filter) ||
+                    product.getStarRating().toString().contains(filter) ||
+                    product.getImageUrl().toLowerCase().contains(filter.toLowerCase())) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int searchIndex() {
+        return productSearchIndex.search(nextQuery()).length;
+    }
+
+    private String nextQuery() {
+        next = (next + 1) % QUERIES.length;
+        return QUERIES[next];
+    }
+}
@@ -0,0 +1,95 @@
+package com.vaadin.application.benchmark;
+
+import com.vaadin.application.cache.ProductSerializer;
+import com.vaadin.application.model.Product;
+import com.vaadin.application.perf.CatalogGenerator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ehcache.impl.serialization.CompactJavaSerializer;
+import org.ehcache.impl.serialization.PlainJavaSerializer;
+import org.ehcache.impl.serialization.TransientStateRepository;
+import org.ehcache.spi.serialization.Serializer;
+import org.ehcache.spi.serialization.StatefulSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialize and read of Product as stored in the Ehcache offheap and disk tiers, by ProductSerializer
+ * against the Java serializers Ehcache uses by default
+ *
+ * @author tailam
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProductSerializerBenchmark {
+
+    private static final Logger logger = LogManager.getLogger(ProductSerializerBenchmark.class);
+    private static final int ENTRIES = 10000;
+
+    @Param({"binary", "compact-java", "plain-java"})
+    public String serializer;
+
+    private Serializer<Product> productSerializer;
+    private List<Product> products;
+    private List<ByteBuffer> serialized;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        productSerializer = serializer();
+        products = new CatalogGenerator(BenchmarkContext.SEED).generate(ENTRIES);
+        serialized = new ArrayList<>(ENTRIES);
+        long bytes = 0;
+        for (Product product : products) {
+            ByteBuffer binary = productSerializer.serialize(product);
+            bytes += binary.remaining();
+            serialized.add(binary);
+        }
+        logger.info("{}: {} bytes per product on average", serializer, bytes / ENTRIES);
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() {
+        return productSerializer.serialize(products.get(nextIndex()));
+    }
+
+    @Benchmark
+    public Product read() throws ClassNotFoundException {
+        return productSerializer.read(serialized.get(nextIndex()).duplicate());
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % ENTRIES;
+        return next;
+    }
+
+    private Serializer<Product> serializer() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        switch (serializer) {
+            case "compact-java":
+                return init(new CompactJavaSerializer<>(classLoader));
+            case "plain-java":
+                return new PlainJavaSerializer<>(classLoader);
+            default:
+                return init(new ProductSerializer(classLoader));
+        }
+    }
+
+    private static Serializer<Product> init(StatefulSerializer<Product> serializer) {
+        serializer.init(new TransientStateRepository());
+        return serializer;
+    }
+}
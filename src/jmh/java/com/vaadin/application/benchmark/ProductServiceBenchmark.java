@@ -0,0 +1,78 @@
+package com.vaadin.application.benchmark;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.model.ProductRow;
+import com.vaadin.application.repository.OffsetPageRequest;
+import com.vaadin.application.repository.ProductRepository;
+import com.vaadin.application.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductService hot paths against the embedded database
+ *
+ * @author tailam
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductServiceBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private ProductRepository productRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(catalogSize);
+        productService = context.getBean(ProductService.class);
+        productRepository = context.getBean(ProductRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Product> findAllProduct() {
+        return productService.findAllProduct();
+    }
+
+    @Benchmark
+    public List<Product> findAllProductFromDatabase() {
+        return productRepository.findAll();
+    }
+
+    @Benchmark
+    public Map<String, Long> getStats() {
+        return productService.getStats();
+    }
+
+    @Benchmark
+    public List<ProductRow> findFirstGridPage() {
+        return productService.findProductRows(null, new OffsetPageRequest(0, 50, Sort.by("productId")));
+    }
+
+    @Benchmark
+    public long countFilteredProducts() {
+        return productService.countProducts("steel");
+    }
+}
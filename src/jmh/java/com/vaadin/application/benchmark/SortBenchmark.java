@@ -0,0 +1,54 @@
+package com.vaadin.application.benchmark;
+
+import com.vaadin.application.cache.SortDataValue;
+import com.vaadin.application.model.Product;
+import com.vaadin.application.perf.CatalogGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting a shuffled catalog with SortDataValue
+ *
+ * @author tailam
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SortBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int catalogSize;
+
+    private List<Product> shuffled;
+    private List<Product> products;
+
+    @Setup(Level.Trial)
+    public void setUpCatalog() {
+        shuffled = new CatalogGenerator(BenchmarkContext.SEED).generate(catalogSize);
+        Collections.shuffle(shuffled, new Random(BenchmarkContext.SEED));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        products = new ArrayList<>(shuffled);
+    }
+
+    @Benchmark
+    public List<Product> sortDataValue() {
+        products.sort(new SortDataValue());
+        return products;
+    }
+}
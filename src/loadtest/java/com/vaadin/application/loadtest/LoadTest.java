@@ -0,0 +1,187 @@
+package com.vaadin.application.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+import com.github.mvysny.kaributesting.v10.Routes;
+import com.github.mvysny.kaributesting.v10.spring.MockSpringServlet;
+import com.vaadin.application.benchmark.BenchmarkContext;
+import com.vaadin.flow.component.UI;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the application on an embedded H2 database seeded with a synthetic catalog.
+ * Simulated Vaadin users and REST clients run concurrently for the warm up and the measured duration,
+ * then the heap is measured while all sessions are still open and again after they were closed.
+ * The JSON report holds throughput and latency percentiles per operation and the heap per session,
+ * reports of two builds can be compared with any JSON diff.
+ * <p>
+ * Settings are system properties: loadtest.sessions, loadtest.rest-clients, loadtest.catalog-size,
+ * loadtest.warmup and loadtest.duration in seconds, loadtest.think-time in milliseconds and loadtest.report.
+ *
+ * @author tailam
+ */
+public final class LoadTest {
+
+    private static final Logger logger = LogManager.getLogger(LoadTest.class);
+    private static final long SETTLE_MILLIS = 200;
+
+    private final int sessions = Integer.getInteger("loadtest.sessions", 20);
+    private final int restClients = Integer.getInteger("loadtest.rest-clients", 4);
+    private final int catalogSize = Integer.getInteger("loadtest.catalog-size", 10000);
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 60);
+    private final long thinkTimeMillis = Long.getLong("loadtest.think-time", 100);
+    private final Path reportFile = Paths.get(System.getProperty("loadtest.report", "target/loadtest-report.json"));
+
+    private final Measurements measurements = new Measurements();
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int status = 0;
+        try {
+            new LoadTest().run();
+        } catch (Exception e) {
+            logger.error("Load test failed", e);
+            status = 1;
+        }
+        // Vaadin and Spring leave non daemon threads behind
+        System.exit(status);
+    }
+
+    private void run() throws Exception {
+        Instant startedAt = Instant.now();
+        try (ConfigurableApplicationContext context = BenchmarkContext.start(catalogSize)) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            MockSpringServlet servlet = new MockSpringServlet(
+                    new Routes().autoDiscoverViews("com.vaadin.application"), context, UI::new);
+            // Initialise the shared servlet once, every user then only opens a session on it
+            MockVaadin.setup(UI::new, servlet);
+            MockVaadin.tearDown();
+            long heapBaseline = usedHeap();
+
+            CountDownLatch holding = new CountDownLatch(sessions);
+            CountDownLatch released = new CountDownLatch(1);
+            List<VaadinUser> users = new ArrayList<>();
+            List<RestClient> clients = new ArrayList<>();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                VaadinUser user = new VaadinUser(i, servlet, measurements, thinkTimeMillis, BenchmarkContext.SEED,
+                        holding, released);
+                users.add(user);
+                threads.add(start("loadtest-user-" + i, user));
+            }
+            for (int i = 0; i < restClients; i++) {
+                RestClient client = new RestClient(i, baseUrl, measurements, thinkTimeMillis, BenchmarkContext.SEED);
+                clients.add(client);
+                threads.add(start("loadtest-rest-" + i, client));
+            }
+
+            logger.warn("Warming up {} sessions and {} REST clients for {} s", sessions, restClients, warmupSeconds);
+            TimeUnit.SECONDS.sleep(warmupSeconds);
+            measurements.startRecording();
+            logger.warn("Measuring for {} s", durationSeconds);
+            TimeUnit.SECONDS.sleep(durationSeconds);
+            measurements.stopRecording();
+            long elapsedNanos = measurements.getElapsedNanos();
+            users.forEach(VaadinUser::stop);
+            clients.forEach(RestClient::stop);
+
+            // Every session is open and idle, as it is between two requests of a real user
+            if (!holding.await(1, TimeUnit.MINUTES)) {
+                throw new IllegalStateException(holding.getCount() + " users did not finish their round");
+            }
+            long heapWithSessions = usedHeap();
+            String serverReport = get(baseUrl + "/api/memory/sessions");
+            released.countDown();
+            for (Thread thread : threads) {
+                thread.join(TimeUnit.MINUTES.toMillis(1));
+            }
+            long heapAfterSessions = usedHeap();
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("startedAt", startedAt.toString());
+            report.put("config", config());
+            report.put("measuredSeconds", elapsedNanos / 1e9);
+            report.put("operations", measurements.summarize(elapsedNanos));
+            report.put("heap", heap(heapBaseline, heapWithSessions, heapAfterSessions));
+            report.put("server", new ObjectMapper().readTree(serverReport));
+            write(report);
+        }
+    }
+
+    private Map<String, Object> config() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("sessions", sessions);
+        config.put("restClients", restClients);
+        config.put("catalogSize", catalogSize);
+        config.put("warmupSeconds", warmupSeconds);
+        config.put("durationSeconds", durationSeconds);
+        config.put("thinkTimeMillis", thinkTimeMillis);
+        config.put("javaVersion", System.getProperty("java.version"));
+        config.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        config.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+        return config;
+    }
+
+    /**
+     * Heap per session is what closing the sessions released, caches filled during the run stay out of it
+     *
+     * @return heap
+     */
+    private Map<String, Object> heap(long baseline, long withSessions, long afterSessions) {
+        Map<String, Object> heap = new LinkedHashMap<>();
+        heap.put("baselineBytes", baseline);
+        heap.put("withSessionsBytes", withSessions);
+        heap.put("afterSessionsBytes", afterSessions);
+        heap.put("perSessionBytes", sessions == 0 ? 0 : Math.max(0, withSessions - afterSessions) / sessions);
+        return heap;
+    }
+
+    private void write(Map<String, Object> report) throws IOException {
+        Path parent = reportFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile.toFile(), report);
+        logger.warn("Load test report written to {}", reportFile.toAbsolutePath());
+    }
+
+    private static Thread start(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.start();
+        return thread;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(SETTLE_MILLIS);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static String get(String url) throws IOException, InterruptedException {
+        return HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+    }
+}
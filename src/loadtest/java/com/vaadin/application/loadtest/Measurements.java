@@ -0,0 +1,77 @@
+package com.vaadin.application.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Latency recorders of all operations, nothing is recorded during the warm up
+ *
+ * @author tailam
+ */
+final class Measurements {
+
+    /**
+     * One timed step of a simulated user or REST client
+     *
+     * @author tailam
+     */
+    interface Step {
+        void run() throws Exception;
+    }
+
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+    private volatile long startedAt;
+
+    void startRecording() {
+        recorders.clear();
+        startedAt = System.nanoTime();
+        recording = true;
+    }
+
+    void stopRecording() {
+        recording = false;
+    }
+
+    long getElapsedNanos() {
+        return System.nanoTime() - startedAt;
+    }
+
+    /**
+     * Time the step, a failed step counts as an error of the operation and is rethrown
+     *
+     * @author tailam
+     */
+    void measure(String operation, Step step) throws Exception {
+        long start = System.nanoTime();
+        try {
+            step.run();
+        } catch (Exception | AssertionError e) {
+            if (recording) {
+                recorder(operation).error();
+            }
+            throw e;
+        }
+        if (recording) {
+            recorder(operation).record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Summary of every operation, by operation name
+     *
+     * @return operations
+     */
+    Map<String, Object> summarize(long elapsedNanos) {
+        Map<String, Object> operations = new LinkedHashMap<>();
+        new TreeMap<>(recorders).forEach((operation, recorder) ->
+                operations.put(operation, recorder.summarize(elapsedNanos)));
+        return operations;
+    }
+
+    private LatencyRecorder recorder(String operation) {
+        return recorders.computeIfAbsent(operation, name -> new LatencyRecorder());
+    }
+}
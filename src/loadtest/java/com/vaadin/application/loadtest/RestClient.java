@@ -0,0 +1,104 @@
+package com.vaadin.application.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * One simulated API consumer paging through the product endpoints, with an occasional full export
+ *
+ * @author tailam
+ */
+final class RestClient implements Runnable {
+
+    private static final Logger logger = LogManager.getLogger(RestClient.class);
+    private static final String[] SORTS = {"productId", "price", "releaseDate", "starRating"};
+    private static final int PAGES_PER_ROUND = 3;
+    private static final int EXPORT_EVERY = 20;
+
+    private final int id;
+    private final String baseUrl;
+    private final Measurements measurements;
+    private final long thinkTimeMillis;
+    private final Random random;
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile boolean stopped;
+
+    RestClient(int id, String baseUrl, Measurements measurements, long thinkTimeMillis, long seed) {
+        this.id = id;
+        this.baseUrl = baseUrl;
+        this.measurements = measurements;
+        this.thinkTimeMillis = thinkTimeMillis;
+        this.random = new Random(seed + id);
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void run() {
+        for (int round = 0; !stopped; round++) {
+            try {
+                runRound(round);
+                if (thinkTimeMillis > 0) {
+                    Thread.sleep(thinkTimeMillis / 2 + random.nextInt((int) thinkTimeMillis + 1));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("REST client {} failed in round {}: {}", id, round, e.toString());
+            }
+        }
+    }
+
+    private void runRound(int round) throws Exception {
+        String query = "/api/products?limit=100&sort=" + SORTS[random.nextInt(SORTS.length)]
+                + "&direction=" + (random.nextBoolean() ? "asc" : "desc");
+        String[] next = {null};
+        measurements.measure("rest.products.first-page", () -> next[0] = fetchPage(query));
+        for (int page = 1; page < PAGES_PER_ROUND && next[0] != null; page++) {
+            String cursor = URLEncoder.encode(next[0], StandardCharsets.UTF_8);
+            measurements.measure("rest.products.next-page", () -> next[0] = fetchPage(query + "&cursor=" + cursor));
+        }
+        measurements.measure("rest.cache.statistics",
+                () -> get("/api/cache/statistics", HttpResponse.BodyHandlers.discarding()));
+        if (round % EXPORT_EVERY == EXPORT_EVERY - 1) {
+            measurements.measure("rest.export.csv", () -> {
+                try (InputStream body = get("/api/export/products?format=csv",
+                        HttpResponse.BodyHandlers.ofInputStream())) {
+                    body.transferTo(OutputStream.nullOutputStream());
+                }
+            });
+        }
+    }
+
+    private String fetchPage(String path) throws IOException, InterruptedException {
+        JsonNode page = objectMapper.readTree(get(path, HttpResponse.BodyHandlers.ofByteArray()));
+        JsonNode next = page.get("next");
+        return next == null || next.isNull() ? null : next.asText();
+    }
+
+    private <T> T get(String path, HttpResponse.BodyHandler<T> bodyHandler) throws IOException, InterruptedException {
+        HttpResponse<T> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(),
+                bodyHandler);
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + path + " answered " + response.statusCode());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,201 @@
+package com.vaadin.application.loadtest;
+
+import com.github.mvysny.kaributesting.v10.GridKt;
+import com.github.mvysny.kaributesting.v10.LocatorJ;
+import com.github.mvysny.kaributesting.v10.MockVaadin;
+import com.github.mvysny.kaributesting.v10.NotificationsKt;
+import com.vaadin.application.model.ProductRow;
+import com.vaadin.application.views.CreateProductForm;
+import com.vaadin.application.views.DashBoardView;
+import com.vaadin.application.views.MyProductsView;
+import com.vaadin.application.views.ProductDetailForm;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.datepicker.DatePicker;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.textfield.TextArea;
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.server.VaadinServlet;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * One simulated user with its own Vaadin session, driven server side without a browser.
+ * Each round navigates through MainLayout, filters and edits in MyProductsView, opens the dashboard
+ * and saves a new product with CreateProductForm.
+ *
+ * @author tailam
+ */
+final class VaadinUser implements Runnable {
+
+    private static final Logger logger = LogManager.getLogger(VaadinUser.class);
+    private static final String[] FILTERS = {"", "Hammer", "Laptop", "Mouse", "Steel", "Garden Cart",
+            "price:10..50", "rating:4..", "released:2019-01-01..2019-12-31", "Keyboard price:100..500"};
+    private static final int PAGE_SIZE = 50;
+    private static final long UI_TIMEOUT_MILLIS = 10_000;
+
+    private final int id;
+    private final VaadinServlet servlet;
+    private final Measurements measurements;
+    private final long thinkTimeMillis;
+    private final Random random;
+    private final CountDownLatch holding;
+    private final CountDownLatch released;
+    private volatile boolean stopped;
+    private int round;
+
+    VaadinUser(int id, VaadinServlet servlet, Measurements measurements, long thinkTimeMillis, long seed,
+               CountDownLatch holding, CountDownLatch released) {
+        this.id = id;
+        this.servlet = servlet;
+        this.measurements = measurements;
+        this.thinkTimeMillis = thinkTimeMillis;
+        this.random = new Random(seed + id);
+        this.holding = holding;
+        this.released = released;
+    }
+
+    /**
+     * Finish the current round, then keep the session open until the heap was measured
+     *
+     * @author tailam
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    @Override
+    public void run() {
+        MockVaadin.setup(UI::new, servlet);
+        try {
+            while (!stopped) {
+                try {
+                    runRound();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception | AssertionError e) {
+                    logger.warn("User {} failed in round {}: {}", id, round, e.toString());
+                }
+                round++;
+            }
+            holding.countDown();
+            released.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            MockVaadin.tearDown();
+        }
+    }
+
+    private void runRound() throws Exception {
+        // The browser closes notifications after a few seconds, the mock keeps them until cleared
+        NotificationsKt.clearNotifications();
+        measurements.measure("ui.navigate.products", () -> UI.getCurrent().navigate(MyProductsView.class));
+        think();
+
+        Grid<ProductRow> grid = grid();
+        String filter = FILTERS[random.nextInt(FILTERS.length)];
+        measurements.measure("ui.products.filter", () -> {
+            LocatorJ._setValue(LocatorJ._get(TextField.class, spec -> spec.withPlaceholder("Looking for...")), filter);
+            GridKt._fetch(grid, 0, PAGE_SIZE);
+        });
+        think();
+
+        List<ProductRow> rows = GridKt._fetch(grid, 0, PAGE_SIZE);
+        if (!rows.isEmpty()) {
+            ProductRow row = rows.get(random.nextInt(rows.size()));
+            measurements.measure("ui.products.select", () -> {
+                MyProductsView view = LocatorJ._get(MyProductsView.class);
+                grid.select(row);
+                awaitUi(() -> view.hasClassName("editing"));
+            });
+            think();
+            measurements.measure("ui.products.edit", () -> {
+                ProductDetailForm form = LocatorJ._get(ProductDetailForm.class);
+                LocatorJ._setValue(LocatorJ._get(form, TextField.class, spec -> spec.withCaption("Product Price")),
+                        price());
+                LocatorJ._click(LocatorJ._get(form, Button.class, spec -> spec.withCaption("Save")));
+            });
+            think();
+        }
+
+        measurements.measure("ui.navigate.dashboard", () -> {
+            UI.getCurrent().navigate(DashBoardView.class);
+            DashBoardView dashboard = LocatorJ._get(DashBoardView.class);
+            awaitUi(() -> dashboard.getChildren()
+                    .noneMatch(child -> child.getElement().getClassList().contains("chart-placeholder"))
+                    && LocatorJ._get(dashboard, Span.class).getText().endsWith(" products"));
+        });
+        think();
+
+        measurements.measure("ui.navigate.create", () -> UI.getCurrent().navigate(CreateProductForm.class));
+        think();
+        measurements.measure("ui.create.save", () -> {
+            CreateProductForm form = LocatorJ._get(CreateProductForm.class);
+            LocatorJ._setValue(LocatorJ._get(form, TextField.class, spec -> spec.withCaption("Product Name")),
+                    "Load Test " + id + " " + round);
+            LocatorJ._setValue(LocatorJ._get(form, TextField.class, spec -> spec.withCaption("Product Code")),
+                    String.format("LT%03d-%05d", id, round));
+            LocatorJ._setValue(LocatorJ._get(form, TextArea.class, spec -> spec.withCaption("Product Description")),
+                    "Created by the load test");
+            LocatorJ._setValue(LocatorJ._get(form, DatePicker.class, spec -> spec.withCaption("Product Release Date")),
+                    // The form only accepts dates that format to M/dd/yyyy, months 10 to 12 are rejected
+                    LocalDate.of(2015 + random.nextInt(7), 1 + random.nextInt(9), 1 + random.nextInt(28)));
+            LocatorJ._setValue(LocatorJ._get(form, TextField.class, spec -> spec.withCaption("Product Price")),
+                    price());
+            LocatorJ._setValue(LocatorJ._get(form, TextField.class, spec -> spec.withCaption("Product Rating")),
+                    "4");
+            LocatorJ._setValue(LocatorJ._get(form, TextField.class, spec -> spec.withCaption("Product Image URL")),
+                    "assets/images/hammer.png");
+            NotificationsKt.clearNotifications();
+            LocatorJ._click(LocatorJ._get(form, Button.class, spec -> spec.withCaption("Save")));
+            NotificationsKt.expectNotifications("Your new product is created !");
+        });
+        think();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Grid<ProductRow> grid() {
+        return LocatorJ._get(Grid.class);
+    }
+
+    private String price() {
+        return String.format(Locale.ROOT, "%.2f", 1 + random.nextInt(100000) / 100F);
+    }
+
+    /**
+     * Run the pushes queued by background threads until the condition holds, as the browser would receive them
+     *
+     * @author tailam
+     */
+    private static void awaitUi(BooleanSupplier condition) throws InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(UI_TIMEOUT_MILLIS);
+        while (true) {
+            MockVaadin.clientRoundtrip();
+            if (condition.getAsBoolean()) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("UI did not update within " + UI_TIMEOUT_MILLIS + " ms");
+            }
+            Thread.sleep(2);
+        }
+    }
+
+    private void think() throws InterruptedException {
+        if (thinkTimeMillis > 0) {
+            Thread.sleep(thinkTimeMillis / 2 + random.nextInt((int) thinkTimeMillis + 1));
+        }
+    }
+}
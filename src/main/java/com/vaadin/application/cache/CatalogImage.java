@@ -0,0 +1,195 @@
+package com.vaadin.application.cache;
+
+import com.vaadin.application.model.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Catalog snapshot persisted as one binary file, read back through a memory mapping at startup.
+ * Header: magic, format version, snapshot version, load time, database change marker, the string dictionary of
+ * image URLs and the row count, then the rows in product id order and a CRC32 of everything before it.
+ * Rows use the ProductCodec encoding with each id relative to the one before.
+ * An image of another format version or with a bad checksum is ignored, the catalog then loads from the database.
+ *
+ * @author tailam
+ */
+public final class CatalogImage {
+
+    static final int MAGIC = 0x50434154;
+    static final int FORMAT_VERSION = 2;
+
+    private static final int NULL_LENGTH = -1;
+    private static final int MAX_DICTIONARY_SIZE = 4096;
+
+    private final String marker;
+    private final CatalogSnapshot snapshot;
+
+    private CatalogImage(String marker, CatalogSnapshot snapshot) {
+        this.marker = marker;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Database change marker read before the snapshot was loaded
+     *
+     * @return marker
+     */
+    public String getMarker() {
+        return marker;
+    }
+
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Write the snapshot next to the file and move it into place, readers never see a partial image
+     *
+     * @author tailam
+     */
+    public static void write(Path file, CatalogSnapshot snapshot, String marker) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 checksum = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(temporary), checksum), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshot.getVersion());
+            out.writeLong(snapshot.getLoadedAt());
+            writeString(out, marker);
+            StringTable dictionary = new StringTable();
+            for (Product product : snapshot.getProducts()) {
+                if (product.getImageUrl() != null) {
+                    dictionary.add(product.getImageUrl());
+                }
+            }
+            out.writeInt(dictionary.values.size());
+            for (String value : dictionary.values) {
+                writeString(out, value);
+            }
+            out.writeInt(snapshot.size());
+            int previousId = 0;
+            for (Product product : snapshot.getProducts()) {
+                ProductCodec.write(out, product, previousId, dictionary);
+                if (product.getProductId() != null) {
+                    previousId = product.getProductId();
+                }
+            }
+            out.flush();
+            out.writeLong(checksum.getValue());
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Map and decode an image
+     *
+     * @return image or null when there is none, it has another format version or is damaged
+     */
+    public static CatalogImage read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < 2 * Integer.BYTES + Long.BYTES || length > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate().position(0).limit((int) length - Long.BYTES));
+            if (buffer.getLong((int) length - Long.BYTES) != checksum.getValue()) {
+                return null;
+            }
+            long version = buffer.getLong();
+            long loadedAt = buffer.getLong();
+            byte[] scratch = new byte[256];
+            String marker = readString(buffer, scratch);
+            StringTable dictionary = new StringTable();
+            int dictionarySize = buffer.getInt();
+            for (int i = 0; i < dictionarySize; i++) {
+                dictionary.add(readString(buffer, scratch));
+            }
+            int count = buffer.getInt();
+            // Written in product id order, the decoded products become the snapshot as they are
+            Product[] products = new Product[count];
+            int previousId = 0;
+            for (int i = 0; i < count; i++) {
+                Product product = ProductCodec.read(buffer, previousId, dictionary);
+                if (product.getProductId() == null || (i > 0 && product.getProductId() <= previousId)) {
+                    return null;
+                }
+                previousId = product.getProductId();
+                products[i] = product;
+            }
+            return new CatalogImage(marker, CatalogSnapshot.ofSorted(version, loadedAt, products));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Image URLs of the catalog, written once in the header
+     *
+     * @author tailam
+     */
+    private static final class StringTable implements ProductCodec.Dictionary {
+
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private void add(String value) {
+            if (values.size() < MAX_DICTIONARY_SIZE && indexes.putIfAbsent(value, values.size()) == null) {
+                values.add(value);
+            }
+        }
+
+        @Override
+        public int indexOf(String value) {
+            return indexes.getOrDefault(value, -1);
+        }
+
+        @Override
+        public String get(int index) {
+            return values.get(index);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.vaadin.application.cache;
+
+import com.vaadin.application.model.Product;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable catalog sorted by product id, shared by every session.
+ * A change never touches a published snapshot, it copies the product array into a new version.
+ * The products are shared too and must not be modified, ProductCacheManager.findProduct hands out copies.
+ *
+ * @author tailam
+ */
+public final class CatalogSnapshot {
+
+    // Rough heap size of a product apart from its strings: object, boxed numbers and date
+    private static final int PRODUCT_BYTES = 160;
+    // Array slots of one product: its reference and its id
+    private static final int SLOT_BYTES = 8 + 4;
+
+    private final long version;
+    private final long loadedAt;
+    private final Product[] products;
+    private final int[] productIds;
+    private final List<Product> productList;
+    private final long estimatedBytes;
+
+    private CatalogSnapshot(long version, long loadedAt, Product[] products, int[] productIds, long estimatedBytes) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.products = products;
+        this.productIds = productIds;
+        this.productList = Collections.unmodifiableList(Arrays.asList(products));
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * Snapshot indexing every product and adding up its size, an edit of one product adjusts its parent instead
+     *
+     * @return snapshot
+     */
+    private static CatalogSnapshot indexed(long version, long loadedAt, Product[] products) {
+        int[] productIds = new int[products.length];
+        long bytes = 16L + 16L;
+        for (int i = 0; i < products.length; i++) {
+            productIds[i] = products[i].getProductId();
+            bytes += SLOT_BYTES + bytes(products[i]);
+        }
+        return new CatalogSnapshot(version, loadedAt, products, productIds, bytes);
+    }
+
+    /**
+     * Snapshot of freshly loaded products, sorted here by product id
+     *
+     * @return snapshot
+     */
+    public static CatalogSnapshot of(long version, long loadedAt, List<Product> products) {
+        Product[] sorted = products.stream().map(Product::new).toArray(Product[]::new);
+        Arrays.sort(sorted, Comparator.comparing(Product::getProductId));
+        return indexed(version, loadedAt, sorted);
+    }
+
+    /**
+     * Snapshot of products already sorted by product id, such as those decoded from the catalog image.
+     * The snapshot takes the array over, the caller must not keep or change it.
+     *
+     * @return snapshot
+     */
+    static CatalogSnapshot ofSorted(long version, long loadedAt, Product[] sorted) {
+        return indexed(version, loadedAt, sorted);
+    }
+
+    /**
+     * Next version with the product inserted or replaced
+     *
+     * @return snapshot
+     */
+    public CatalogSnapshot withSaved(Product product) {
+        Product saved = new Product(product);
+        int index = Arrays.binarySearch(productIds, saved.getProductId());
+        if (index >= 0) {
+            Product[] next = products.clone();
+            next[index] = saved;
+            return new CatalogSnapshot(version + 1, loadedAt, next, productIds,
+                    estimatedBytes - bytes(products[index]) + bytes(saved));
+        }
+        int insertion = -index - 1;
+        Product[] next = new Product[products.length + 1];
+        System.arraycopy(products, 0, next, 0, insertion);
+        next[insertion] = saved;
+        System.arraycopy(products, insertion, next, insertion + 1, products.length - insertion);
+        int[] nextIds = new int[productIds.length + 1];
+        System.arraycopy(productIds, 0, nextIds, 0, insertion);
+        nextIds[insertion] = saved.getProductId();
+        System.arraycopy(productIds, insertion, nextIds, insertion + 1, productIds.length - insertion);
+        return new CatalogSnapshot(version + 1, loadedAt, next, nextIds, estimatedBytes + SLOT_BYTES + bytes(saved));
+    }
+
+    /**
+     * Next version without the product
+     *
+     * @return snapshot, this one when the product is not in it
+     */
+    public CatalogSnapshot withDeleted(Integer productId) {
+        int index = Arrays.binarySearch(productIds, productId);
+        if (index < 0) {
+            return this;
+        }
+        Product[] next = new Product[products.length - 1];
+        System.arraycopy(products, 0, next, 0, index);
+        System.arraycopy(products, index + 1, next, index, products.length - index - 1);
+        int[] nextIds = new int[productIds.length - 1];
+        System.arraycopy(productIds, 0, nextIds, 0, index);
+        System.arraycopy(productIds, index + 1, nextIds, index, productIds.length - index - 1);
+        return new CatalogSnapshot(version + 1, loadedAt, next, nextIds,
+                estimatedBytes - SLOT_BYTES - bytes(products[index]));
+    }
+
+    /**
+     * Next version with a batch of products inserted or replaced, one copy for the whole batch
+     *
+     * @return snapshot
+     */
+    public CatalogSnapshot withSavedAll(List<Product> saved) {
+        Product[] added = saved.stream().map(Product::new).toArray(Product[]::new);
+        Arrays.sort(added, Comparator.comparing(Product::getProductId));
+        Product[] merged = new Product[products.length + added.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < products.length || j < added.length) {
+            if (j == added.length || i < products.length && productIds[i] < added[j].getProductId()) {
+                merged[size++] = products[i++];
+            } else {
+                if (i < products.length && productIds[i] == added[j].getProductId()) {
+                    i++;
+                }
+                merged[size++] = added[j++];
+            }
+        }
+        return indexed(version + 1, loadedAt, Arrays.copyOf(merged, size));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * When the products were read from the database, changes applied since do not refresh it
+     *
+     * @return epoch millis
+     */
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * Products sorted by product id, unmodifiable
+     *
+     * @return listProduct
+     */
+    public List<Product> getProducts() {
+        return productList;
+    }
+
+    public int size() {
+        return products.length;
+    }
+
+    /**
+     * Product of this snapshot by id, shared and not to be modified
+     *
+     * @return product or null
+     */
+    public Product find(int productId) {
+        int index = Arrays.binarySearch(productIds, productId);
+        return index >= 0 ? products[index] : null;
+    }
+
+    /**
+     * Rough heap size of this snapshot, computed once when it is created
+     *
+     * @return bytes
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    private static long bytes(Product product) {
+        return PRODUCT_BYTES + length(product.getProductName()) + length(product.getProductCode())
+                + length(product.getDescription()) + length(product.getImageUrl());
+    }
+
+    private static int length(String value) {
+        // String object and its Latin-1 value array
+        return value == null ? 0 : 40 + value.length();
+    }
+}
@@ -0,0 +1,39 @@
+package com.vaadin.application.cache;
+
+import org.ehcache.expiry.ExpiryPolicy;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Expiry of productCache and of Hibernate's Product and query result regions, registered in ehcache.xml.
+ * Entries live for a ttl set by ProductCacheManager, product.cache.product-ttl-seconds or the longer
+ * product.cdc.cache-ttl-seconds once changes are captured: only then are writes made outside this application
+ * evicted as they happen. Like a ttl in ehcache.xml it counts from creation, reads and updates keep the expiry.
+ *
+ * @author tailam
+ */
+public class ProductCacheExpiry implements ExpiryPolicy<Object, Object> {
+
+    // Set before the first entry is written, a change applies to entries created after it
+    private static volatile Duration ttl = Duration.ofSeconds(10);
+
+    static void setTtl(Duration ttl) {
+        ProductCacheExpiry.ttl = ttl.isZero() ? ExpiryPolicy.INFINITE : ttl;
+    }
+
+    @Override
+    public Duration getExpiryForCreation(Object key, Object value) {
+        return ttl;
+    }
+
+    @Override
+    public Duration getExpiryForAccess(Object key, Supplier<?> value) {
+        return null;
+    }
+
+    @Override
+    public Duration getExpiryForUpdate(Object key, Supplier<?> oldValue, Object value) {
+        return null;
+    }
+}
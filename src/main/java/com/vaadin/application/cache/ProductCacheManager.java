@@ -1,80 +1,686 @@
 package com.vaadin.application.cache;
 
+import com.vaadin.application.error.ProductNotFoundException;
 import com.vaadin.application.model.Product;
-import com.vaadin.application.service.ProductService;
+import com.vaadin.application.repository.ProductChangeRepository;
+import com.vaadin.application.repository.ProductRepository;
+import com.vaadin.application.service.ProductChangeListener;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.ehcache.Cache;
-import org.ehcache.CacheManager;
-import org.ehcache.config.builders.CacheConfigurationBuilder;
-import org.ehcache.config.builders.CacheManagerBuilder;
-import org.ehcache.config.builders.ExpiryPolicyBuilder;
-import org.ehcache.config.builders.ResourcePoolsBuilder;
-import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.context.annotation.Configuration;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
 
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 /**
- * Configuration cache
+ * Application scoped product caches, backed by the caches declared in ehcache.xml
  *
  * @author tailam
  */
-@Configuration
-@EnableCaching
-public class ProductCacheManager {
+@Component
+public class ProductCacheManager implements ProductChangeListener {
+
+    public static final String PRODUCT_CACHE = "productCache";
+    public static final String CATALOG_CACHE = "findAllProductCache";
+    private static final String CATALOG_KEY = "ALL";
+    // Longer ttls and a ttl of 0 are treated as no expiry, nothing to refresh ahead of
+    private static final Duration MAX_REFRESH_AHEAD_TTL = Duration.ofDays(1);
 
     private static Logger logger = LogManager.getLogger(ProductCacheManager.class);
-    private final ProductService productService;
-    private Product product;
-
-    public ProductCacheManager(ProductService productService) {
-        this.productService = productService;
-    }
-
-    public Cache<String, List> findAllProductCache() {
-        // Find all product in cache
-        CacheManager findAllProductCacheManager = CacheManagerBuilder.newCacheManagerBuilder()
-                .withCache("findAllProductCache",
-                        CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, List.class,
-                                ResourcePoolsBuilder.heap(10))
-                                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(10)))).build();
-        findAllProductCacheManager.init();
-        Cache<String, List> findAllProductCache = findAllProductCacheManager
-                .getCache("findAllProductCache", String.class, List.class);
-        findAllProductCache.put("'ALL'", productService.findAllProduct());
-        logger.info("Retrieved data from database into cache with key: ALL");
-        return findAllProductCache;
-    }
-
-    public Cache<String, Product> updateProductCache(Product product) {
-        // Update product in cache
-        CacheManager updateProductCacheManager = CacheManagerBuilder.newCacheManagerBuilder()
-                .withCache("updateProductCache",
-                        CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, Product.class,
-                                ResourcePoolsBuilder.heap(10))
-                                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(10)))).build();
-        updateProductCacheManager.init();
-        Cache<String, Product> updateProductCache = updateProductCacheManager
-                .getCache("updateProductCache", String.class, Product.class);
-        updateProductCache.put("'UPDATED'", productService.updateProduct(product));
-        logger.info("Update data in cache with key: UPDATED");
-        return updateProductCache;
-    }
-
-    public Cache<String, Product> deleteProductCache(Product product) {
-        // Delete product in cache
-        CacheManager deleteProductCacheManager = CacheManagerBuilder.newCacheManagerBuilder()
-                .withCache("deleteProductCache",
-                        CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, Product.class,
-                                ResourcePoolsBuilder.heap(10))
-                                .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(10)))).build();
-        deleteProductCacheManager.init();
-        Cache<String, Product> deleteProductCache = deleteProductCacheManager
-                .getCache("deleteProductCache", String.class, Product.class);
-        deleteProductCache.put("'DELETED'", productService.deleteProduct(product));
-        logger.info("Deleted data in cache with key: DELETED");
-        return deleteProductCache;
+    private final ProductRepository productRepository;
+    private final ProductChangeRepository productChangeRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Cache<Integer, Product> productCache;
+    private final Map<String, CacheStatistics> statistics = new LinkedHashMap<>();
+    private final TaskScheduler taskScheduler;
+    private final ObjectProvider<ProductChangeListener> productChangeListeners;
+    private final Path imageFile;
+
+    // Single-flight catalog load, the current snapshot is served while it runs
+    private final AtomicReference<CompletableFuture<CatalogSnapshot>> catalogLoad = new AtomicReference<>();
+    // Copy-on-write catalog shared by all sessions, swapped under catalogLock
+    private final AtomicReference<CatalogSnapshot> catalog = new AtomicReference<>();
+    private final Object catalogLock = new Object();
+    private long catalogGeneration;
+    private volatile long catalogExpiresAt;
+    private volatile long lastCatalogRead;
+    private final double refreshAheadRatio;
+    // Raised once by onChangeCaptureStarted, before the catalog is first loaded
+    private volatile long catalogTtlMillis;
+    private volatile long refreshAheadMillis;
+    // Marker of the last image written or restored, and of the restored one until it is reconciled
+    private volatile String imageMarker;
+    private volatile String restoredMarker;
+    // Local writes publish under the read lock, changes from the change log are applied under the write lock
+    private final ReadWriteLock changeLock = new ReentrantReadWriteLock();
+    // Products published ahead of the database by a write that is not committed yet
+    private volatile Predicate<Integer> pendingEdits = productId -> false;
+
+    public ProductCacheManager(CacheManager cacheManager, ProductRepository productRepository,
+                               ProductChangeRepository productChangeRepository,
+                               EntityManagerFactory entityManagerFactory, TaskScheduler taskScheduler,
+                               ObjectProvider<ProductChangeListener> productChangeListeners,
+                               @Value("${product.cache.catalog-ttl-seconds:10}") long catalogTtlSeconds,
+                               @Value("${product.cache.product-ttl-seconds:10}") long productTtlSeconds,
+                               @Value("${product.cache.refresh-ahead-ratio:0.8}") double refreshAheadRatio,
+                               @Value("${product.cache.image-file:}") String imageFile) {
+        this.productRepository = productRepository;
+        this.productChangeRepository = productChangeRepository;
+        this.entityManagerFactory = entityManagerFactory;
+        this.taskScheduler = taskScheduler;
+        this.productChangeListeners = productChangeListeners;
+        this.imageFile = imageFile.isBlank() ? null : Paths.get(imageFile);
+        this.productCache = cacheManager.getCache(PRODUCT_CACHE, Integer.class, Product.class);
+        statistics.put(PRODUCT_CACHE, new CacheStatistics(PRODUCT_CACHE));
+        statistics.put(CATALOG_CACHE, new CacheStatistics(CATALOG_CACHE));
+        this.refreshAheadRatio = refreshAheadRatio;
+        setCatalogTtl(Duration.ofSeconds(catalogTtlSeconds));
+        ProductCacheExpiry.setTtl(Duration.ofSeconds(productTtlSeconds));
+    }
+
+    private void setCatalogTtl(Duration ttl) {
+        catalogTtlMillis = !ttl.isNegative() && ttl.compareTo(MAX_REFRESH_AHEAD_TTL) < 0 ? ttl.toMillis() : 0;
+        refreshAheadMillis = (long) (catalogTtlMillis * refreshAheadRatio);
+    }
+
+    /**
+     * Serve the catalog and cached products for the longer ttl of change data capture. Called by
+     * ProductChangePoller once it found the change log trigger, before the catalog is first loaded.
+     *
+     * @author tailam
+     */
+    public void onChangeCaptureStarted(Duration cacheTtl) {
+        setCatalogTtl(cacheTtl);
+        ProductCacheExpiry.setTtl(cacheTtl);
+    }
+
+    /**
+     * Catalog sorted by product id, the same unmodifiable list for every caller until the snapshot changes.
+     * Its products are shared with every other caller and must not be modified, findProduct returns a copy to edit.
+     *
+     * @return listProduct
+     */
+    public List<Product> findAllProducts() {
+        return getCatalog().getProducts();
+    }
+
+    /**
+     * Current catalog snapshot. Once product.cache.catalog-ttl-seconds has passed the snapshot is still served while a
+     * single background load replaces it, callers only wait when no snapshot was ever loaded.
+     *
+     * @return snapshot
+     */
+    public CatalogSnapshot getCatalog() {
+        lastCatalogRead = System.currentTimeMillis();
+        CatalogSnapshot snapshot = catalog.get();
+        if (snapshot != null) {
+            if (lastCatalogRead >= catalogExpiresAt) {
+                statistics.get(CATALOG_CACHE).recordMiss();
+                loadCatalog(true);
+            } else {
+                statistics.get(CATALOG_CACHE).recordHit();
+            }
+            return snapshot;
+        }
+        statistics.get(CATALOG_CACHE).recordMiss();
+        try {
+            return loadCatalog(false).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    /**
+     * Restore the catalog from the image written by a previous run, before the application takes traffic.
+     * It is served as is until the background reconcile has compared it with the database.
+     *
+     * @author tailam
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void restoreCatalog() {
+        if (imageFile == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        CatalogImage image;
+        try {
+            image = CatalogImage.read(imageFile);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read the catalog image {}", imageFile, e);
+            return;
+        }
+        if (image == null) {
+            logger.info("No usable catalog image at {}", imageFile.toAbsolutePath());
+            return;
+        }
+        synchronized (catalogLock) {
+            if (catalog.get() != null) {
+                return;
+            }
+            catalog.set(image.getSnapshot());
+            catalogExpiresAt = Long.MAX_VALUE;
+            imageMarker = image.getMarker();
+            restoredMarker = image.getMarker();
+        }
+        List<Product> products = image.getSnapshot().getProducts();
+        logger.info("Restored {} products from the catalog image in {} ms", products.size(),
+                System.currentTimeMillis() - start);
+        productChangeListeners.orderedStream().filter(listener -> listener != this)
+                .forEach(listener -> listener.onCatalogRestored(products));
+    }
+
+    /**
+     * Load the catalog in the background once the application is up, so the first view does not wait.
+     * A catalog restored from the image is reconciled with the database instead.
+     *
+     * @author tailam
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmCatalog() {
+        if (refreshAheadMillis > 0) {
+            taskScheduler.scheduleWithFixedDelay(this::refreshAhead, Duration.ofMillis(refreshAheadMillis));
+        }
+        if (restoredMarker != null) {
+            taskScheduler.schedule(this::reconcileCatalog, Instant.now());
+        } else {
+            loadCatalog(true);
+        }
+    }
+
+    /**
+     * Check the restored catalog against the database change marker. When the database moved on meanwhile
+     * the catalog is reloaded and the differences are passed to the listeners as saves and deletes,
+     * so indexes built from the image catch up without being rebuilt.
+     *
+     * @author tailam
+     */
+    void reconcileCatalog() {
+        long start = System.currentTimeMillis();
+        long generation;
+        synchronized (catalogLock) {
+            generation = catalogGeneration;
+        }
+        try {
+            String marker = readChangeMarker();
+            if (marker.equals(restoredMarker)) {
+                synchronized (catalogLock) {
+                    if (generation == catalogGeneration) {
+                        catalogExpiresAt = catalogTtlMillis > 0 ? start + catalogTtlMillis : Long.MAX_VALUE;
+                    }
+                }
+                logger.info("Catalog image is current, checked in {} ms", System.currentTimeMillis() - start);
+                return;
+            }
+            // Loaded before taking the lock, local writes and applied changes go on meanwhile
+            long loadedGeneration = generation;
+            List<Product> products = productRepository.findAll(Sort.by("productId"));
+            // Published differences must not cross local writes or applied changes, see publishing
+            Lock lock = changeLock.writeLock();
+            lock.lock();
+            try {
+                synchronized (catalogLock) {
+                    generation = catalogGeneration;
+                }
+                if (generation != loadedGeneration) {
+                    // A change was published during the load, which may be older than it: load again
+                    products = productRepository.findAll(Sort.by("productId"));
+                }
+                CatalogSnapshot current = catalog.get();
+                CatalogSnapshot loaded = CatalogSnapshot.of(current.getVersion() + 1, start,
+                        withPendingEdits(products, current));
+                int changes = publishDifferences(current.getProducts(), loaded.getProducts());
+                install(loaded, generation, marker);
+                logger.info("Reconciled the catalog image with the database, {} changes in {} ms", changes,
+                        System.currentTimeMillis() - start);
+            } finally {
+                lock.unlock();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not reconcile the catalog image, reloading", e);
+            invalidateCatalog();
+        }
+    }
+
+    /**
+     * Loaded products with the published state of those with a pending edit, the database is behind on them
+     *
+     * @return products
+     */
+    private List<Product> withPendingEdits(List<Product> loaded, CatalogSnapshot current) {
+        List<Product> products = new ArrayList<>(loaded.size());
+        for (Product product : loaded) {
+            Product published = pendingEdits.test(product.getProductId()) ? current.find(product.getProductId()) : null;
+            products.add(published != null ? published : product);
+        }
+        return products;
+    }
+
+    /**
+     * Walk both catalogs in product id order and notify the other listeners of every difference
+     *
+     * @return number of differences
+     */
+    private int publishDifferences(List<Product> before, List<Product> after) {
+        List<ProductChangeListener> listeners = productChangeListeners.orderedStream()
+                .filter(listener -> listener != this).collect(Collectors.toList());
+        int changes = 0;
+        int i = 0;
+        int j = 0;
+        while (i < before.size() || j < after.size()) {
+            Product previous = i < before.size() ? before.get(i) : null;
+            Product current = j < after.size() ? after.get(j) : null;
+            int order = previous == null ? 1 : current == null ? -1
+                    : Integer.compare(previous.getProductId(), current.getProductId());
+            if (order < 0) {
+                productCache.remove(previous.getProductId());
+                listeners.forEach(listener -> listener.onProductDeleted(new Product(previous)));
+                changes++;
+                i++;
+            } else if (order > 0) {
+                listeners.forEach(listener -> listener.onProductSaved(null, new Product(current)));
+                changes++;
+                j++;
+            } else {
+                if (!sameProduct(previous, current)) {
+                    productCache.remove(current.getProductId());
+                    listeners.forEach(listener -> listener.onProductSaved(new Product(previous), new Product(current)));
+                    changes++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return changes;
+    }
+
+    private static boolean sameProduct(Product left, Product right) {
+        return Objects.equals(left.getVersion(), right.getVersion())
+                && Objects.equals(left.getProductName(), right.getProductName())
+                && Objects.equals(left.getProductCode(), right.getProductCode())
+                && Objects.equals(left.getDescription(), right.getDescription())
+                && Objects.equals(left.getPrice(), right.getPrice())
+                && Objects.equals(left.getStarRating(), right.getStarRating())
+                && Objects.equals(left.getImageUrl(), right.getImageUrl())
+                && Objects.equals(left.getReleaseDate() == null ? null : left.getReleaseDate().getTime(),
+                        right.getReleaseDate() == null ? null : right.getReleaseDate().getTime());
+    }
+
+    /**
+     * Database change marker, see ProductRepository.findChangeMarker, followed by the last id of the change log.
+     * The log also moves for writes that leave count, ids and versions as they were.
+     *
+     * @return marker
+     */
+    private String readChangeMarker() {
+        Object[] row = productRepository.findChangeMarker().get(0);
+        return row[0] + ":" + row[1] + ":" + row[2] + ":" + productChangeRepository.findLastChangeId();
+    }
+
+    /**
+     * Reload the catalog before its ttl expires, as long as someone has read it recently
+     *
+     * @author tailam
+     */
+    void refreshAhead() {
+        if (System.currentTimeMillis() - lastCatalogRead < 2 * refreshAheadMillis) {
+            loadCatalog(true);
+        }
+    }
+
+    /**
+     * Start a catalog load unless one is already running, concurrent callers share the same load
+     *
+     * @return load
+     */
+    private CompletableFuture<CatalogSnapshot> loadCatalog(boolean async) {
+        CompletableFuture<CatalogSnapshot> load = new CompletableFuture<>();
+        CompletableFuture<CatalogSnapshot> running = catalogLoad.compareAndExchange(null, load);
+        if (running != null) {
+            return running;
+        }
+        if (async) {
+            taskScheduler.schedule(() -> runCatalogLoad(load), Instant.now());
+        } else {
+            runCatalogLoad(load);
+        }
+        return load;
+    }
+
+    private void runCatalogLoad(CompletableFuture<CatalogSnapshot> load) {
+        long generation;
+        synchronized (catalogLock) {
+            generation = catalogGeneration;
+        }
+        try {
+            long loadedAt = System.currentTimeMillis();
+            // Read first, a write racing with the load then makes the image look older rather than newer
+            String marker = imageFile == null ? null : readChangeMarker();
+            List<Product> products = productRepository.findAll(Sort.by("productId"));
+            CatalogSnapshot current = catalog.get();
+            CatalogSnapshot loaded = current == null ? CatalogSnapshot.of(1, loadedAt, products)
+                    : CatalogSnapshot.of(current.getVersion() + 1, loadedAt, withPendingEdits(products, current));
+            logger.info("Retrieved data from database into cache with key: {}", CATALOG_KEY);
+            load.complete(install(loaded, generation, marker));
+        } catch (RuntimeException e) {
+            logger.warn("Could not load the product catalog", e);
+            load.completeExceptionally(e);
+        } finally {
+            catalogLoad.compareAndSet(load, null);
+        }
+    }
+
+    /**
+     * Publish a loaded snapshot unless a change was applied while it loaded, the load would undo it.
+     * Without any snapshot yet it is published anyway but already expired, so the next read loads again.
+     * A published snapshot is written to the catalog image when the database marker moved since the last one.
+     *
+     * @return the snapshot now current
+     */
+    private CatalogSnapshot install(CatalogSnapshot loaded, long generation, String marker) {
+        synchronized (catalogLock) {
+            CatalogSnapshot current = catalog.get();
+            boolean latest = generation == catalogGeneration;
+            if (!latest && current != null) {
+                catalogExpiresAt = 0;
+                return current;
+            }
+            catalog.set(loaded);
+            if (!latest) {
+                catalogExpiresAt = 0;
+            } else {
+                catalogExpiresAt = catalogTtlMillis > 0 ? loaded.getLoadedAt() + catalogTtlMillis : Long.MAX_VALUE;
+            }
+            if (latest && marker != null && !marker.equals(imageMarker)) {
+                imageMarker = marker;
+                taskScheduler.schedule(() -> writeImage(loaded, marker), Instant.now());
+            }
+            return loaded;
+        }
+    }
+
+    private void writeImage(CatalogSnapshot snapshot, String marker) {
+        long start = System.currentTimeMillis();
+        try {
+            CatalogImage.write(imageFile, snapshot, marker);
+            logger.info("Wrote {} products to the catalog image in {} ms", snapshot.size(),
+                    System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not write the catalog image {}", imageFile, e);
+        }
+    }
+
+    /**
+     * Swap in a changed copy of the catalog, readers keep the snapshot they already hold.
+     * The image is not rewritten on every change, the next load writes it and a restart reconciles it.
+     *
+     * @author tailam
+     */
+    private void changeCatalog(UnaryOperator<CatalogSnapshot> change) {
+        synchronized (catalogLock) {
+            catalogGeneration++;
+            CatalogSnapshot current = catalog.get();
+            if (current != null) {
+                catalog.set(change.apply(current));
+            }
+        }
+    }
+
+    private void invalidateCatalog() {
+        synchronized (catalogLock) {
+            catalogGeneration++;
+            catalogExpiresAt = 0;
+        }
+    }
+
+    /**
+     * Run a write of this application together with the listener calls publishing it. Changes from the
+     * change log are only applied while no such write runs, so applyChanges finds every local write either
+     * not committed yet or already published, and never publishes it a second time.
+     *
+     * @return result of the write
+     */
+    public <T> T publishing(Supplier<T> write) {
+        Lock lock = changeLock.readLock();
+        lock.lock();
+        try {
+            return write.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void publishing(Runnable write) {
+        publishing(() -> {
+            write.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a read of the database while no write of this application is between its commit and the listener
+     * calls publishing it, and no logged change is being applied: it sees what the listeners were told so far.
+     *
+     * @return result of the read
+     */
+    public <T> T exclusively(Supplier<T> read) {
+        Lock lock = changeLock.writeLock();
+        lock.lock();
+        try {
+            return read.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Register the products whose published state is ahead of the database, ProductWriteBehindQueue registers
+     * its queued edits. applyChanges leaves them alone, their own write is logged and applied later.
+     *
+     * @author tailam
+     */
+    public void setPendingEdits(Predicate<Integer> pendingEdits) {
+        this.pendingEdits = pendingEdits;
+    }
+
+    /**
+     * Apply products changed in the database, as found in the change log, to the caches and all listeners.
+     * Each product is compared with the catalog, so applying a change twice or applying a local write
+     * that was already published does nothing. Products that differ were written behind Hibernate's back,
+     * their second-level cache entries and the cached grid queries are evicted before the change is published.
+     * Products with a pending edit are skipped, the database is still behind what was published for them.
+     *
+     * @return number of products that differed from the catalog
+     */
+    public int applyChanges(Collection<Integer> productIds) {
+        Lock lock = changeLock.writeLock();
+        lock.lock();
+        try {
+            Map<Integer, Product> rows = new HashMap<>();
+            productRepository.findAllById(productIds).forEach(row -> rows.put(row.getProductId(), row));
+            return applyRows(productIds, rows);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compare the whole catalog with the database and apply every difference like applyChanges.
+     * ProductChangePoller resynchronizes when it gave up on a change id, a change committed after that is not
+     * in the log it reads any more.
+     *
+     * @return number of products that differed from the catalog
+     */
+    public int resync() {
+        Lock lock = changeLock.writeLock();
+        lock.lock();
+        try {
+            Map<Integer, Product> rows = new LinkedHashMap<>();
+            productRepository.findAll(Sort.by("productId")).forEach(row -> rows.put(row.getProductId(), row));
+            Set<Integer> productIds = new TreeSet<>(rows.keySet());
+            CatalogSnapshot snapshot = catalog.get();
+            if (snapshot != null) {
+                snapshot.getProducts().forEach(product -> productIds.add(product.getProductId()));
+            }
+            return applyRows(productIds, rows);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publish the given database rows of products that differ from the catalog, under the write lock
+     *
+     * @return number of products that differed from the catalog
+     */
+    private int applyRows(Collection<Integer> productIds, Map<Integer, Product> rows) {
+        CatalogSnapshot snapshot = catalog.get();
+        Map<Integer, Product> previous = new LinkedHashMap<>();
+        for (Integer productId : productIds) {
+            if (pendingEdits.test(productId)) {
+                continue;
+            }
+            Product before = snapshot == null ? null : snapshot.find(productId);
+            Product after = rows.get(productId);
+            // Without a catalog nothing was derived from it yet, the first load reads these rows
+            boolean changed = snapshot == null || (before == null ? after != null
+                    : after == null || !sameProduct(before, after));
+            if (changed) {
+                previous.put(productId, before);
+            }
+        }
+        if (previous.isEmpty()) {
+            return 0;
+        }
+        org.hibernate.Cache secondLevelCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        previous.keySet().forEach(productId -> {
+            productCache.remove(productId);
+            secondLevelCache.evictEntityData(Product.class, productId);
+        });
+        secondLevelCache.evictDefaultQueryRegion();
+        if (snapshot == null) {
+            return previous.size();
+        }
+        // The provider leaves this bean out, it is updated first like ProductService does
+        List<ProductChangeListener> listeners = new ArrayList<>();
+        listeners.add(this);
+        productChangeListeners.orderedStream().forEach(listeners::add);
+        previous.forEach((productId, before) -> {
+            Product after = rows.get(productId);
+            if (after == null) {
+                listeners.forEach(listener -> listener.onProductDeleted(new Product(before)));
+            } else {
+                listeners.forEach(listener -> listener.onProductSaved(
+                        before == null ? null : new Product(before), new Product(after)));
+            }
+        });
+        return previous.size();
+    }
+
+    /**
+     * Product by id, loaded from database on miss.
+     * Callers get their own copy so edits never leak into the cached value.
+     *
+     * @return product
+     */
+    public Product findProduct(Integer productId) {
+        Product product = getCachedProduct(productId);
+        if (product != null) {
+            return product;
+        }
+        product = productRepository.findById(productId)
+                .orElseThrow(() -> new ProductNotFoundException("Product not found with id: " + productId));
+        productCache.put(productId, new Product(product));
+        return product;
+    }
+
+    /**
+     * Cached copy of a product without going to the database
+     *
+     * @return product or null
+     */
+    public Product getCachedProduct(Integer productId) {
+        Product product = productCache.get(productId);
+        if (product == null) {
+            statistics.get(PRODUCT_CACHE).recordMiss();
+            return null;
+        }
+        statistics.get(PRODUCT_CACHE).recordHit();
+        return new Product(product);
+    }
+
+    // Only reached through onProductSaved, so every listener sees the same writes
+    private void putProduct(Product product) {
+        productCache.put(product.getProductId(), new Product(product));
+        changeCatalog(snapshot -> snapshot.withSaved(product));
+    }
+
+    /**
+     * Evict a product that may have been changed elsewhere, the catalog is reloaded in the background
+     *
+     * @author tailam
+     */
+    public void evictProduct(Product product) {
+        productCache.remove(product.getProductId());
+        invalidateCatalog();
+    }
+
+    @Override
+    public void onProductSaved(Product previous, Product saved) {
+        putProduct(saved);
+    }
+
+    @Override
+    public void onProductDeleted(Product deleted) {
+        productCache.remove(deleted.getProductId());
+        changeCatalog(snapshot -> snapshot.withDeleted(deleted.getProductId()));
+    }
+
+    @Override
+    public void onProductsImported(List<Product> imported) {
+        // Imported products are loaded into the product cache on first read
+        changeCatalog(snapshot -> snapshot.withSavedAll(imported));
+    }
+
+    /**
+     * Hit and miss counters per cache alias
+     *
+     * @return statistics
+     */
+    public Collection<CacheStatistics> getStatistics() {
+        return Collections.unmodifiableCollection(statistics.values());
     }
 }
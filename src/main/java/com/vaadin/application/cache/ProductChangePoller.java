@@ -0,0 +1,206 @@
+package com.vaadin.application.cache;
+
+import com.vaadin.application.model.ProductChange;
+import com.vaadin.application.repository.ProductChangeRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Tails product_change_log by change id and applies every logged change through ProductCacheManager.applyChanges,
+ * which updates or evicts the caches and passes the change to the indexes. Writes made outside this application
+ * are picked up the same way as its own, which applyChanges recognizes as already published.
+ * Change ids are taken when a row is written but become visible on commit, possibly out of order: an id missing
+ * below a committed one is looked for again until product.cdc.gap-timeout-ms, then taken as rolled back and the
+ * caches are resynchronized, in case it committed later after all.
+ * Nothing is polled without product_change_trg, the caches then keep their short ttls.
+ *
+ * @author tailam
+ */
+@Component
+@ConditionalOnProperty(name = "product.cdc.enabled", havingValue = "true")
+public class ProductChangePoller {
+
+    private static final Logger logger = LogManager.getLogger(ProductChangePoller.class);
+    // Missing ids looked for again per poll at most
+    private static final int MAX_GAPS = 1000;
+    private static final long PURGE_INTERVAL_MILLIS = Duration.ofMinutes(10).toMillis();
+
+    private final ProductChangeRepository productChangeRepository;
+    private final ProductCacheManager productCacheManager;
+    private final TaskScheduler taskScheduler;
+    private final long pollIntervalMillis;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final long retentionMillis;
+    private final Duration cacheTtl;
+
+    // Only used by the polling task: every change up to the watermark was applied or given up,
+    // applied holds the changes applied above it
+    private long watermark;
+    private final NavigableSet<Long> applied = new TreeSet<>();
+    private long gapSince;
+    private long lastPurge;
+    private boolean failing;
+    // Set when change ids were given up, a change committed after that would never be applied
+    private boolean resync;
+
+    public ProductChangePoller(ProductChangeRepository productChangeRepository,
+                               ProductCacheManager productCacheManager, TaskScheduler taskScheduler,
+                               @Value("${product.cdc.poll-interval-ms:1000}") long pollIntervalMillis,
+                               @Value("${product.cdc.batch-size:500}") int batchSize,
+                               @Value("${product.cdc.gap-timeout-ms:30000}") long gapTimeoutMillis,
+                               @Value("${product.cdc.retention-hours:24}") long retentionHours,
+                               @Value("${product.cdc.cache-ttl-seconds:3600}") long cacheTtlSeconds) {
+        this.productChangeRepository = productChangeRepository;
+        this.productCacheManager = productCacheManager;
+        this.taskScheduler = taskScheduler;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+        this.retentionMillis = Duration.ofHours(retentionHours).toMillis();
+        this.cacheTtl = Duration.ofSeconds(cacheTtlSeconds);
+    }
+
+    /**
+     * Start at the end of the log, before the catalog is first loaded: older changes are part of that load.
+     * Runs after the perf profile has seeded its database. The trigger is checked first, ddl-auto creates
+     * the log table but not the trigger.
+     *
+     * @author tailam
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        if (productChangeRepository.countChangeTriggers() == 0) {
+            logger.error("Trigger product_change_trg of demo_db.sql is missing or disabled, product changes are not"
+                    + " captured and the caches keep their short ttls. Create it or set product.cdc.enabled=false");
+            return;
+        }
+        productCacheManager.onChangeCaptureStarted(cacheTtl);
+        Long lastChangeId = productChangeRepository.findLastChangeId();
+        watermark = lastChangeId == null ? 0 : lastChangeId;
+        lastPurge = System.currentTimeMillis();
+        logger.info("Polling the product change log after change {} every {} ms", watermark, pollIntervalMillis);
+        taskScheduler.scheduleWithFixedDelay(this::poll, Instant.now().plusMillis(pollIntervalMillis),
+                Duration.ofMillis(pollIntervalMillis));
+    }
+
+    /**
+     * Apply new changes batch by batch until the log is drained
+     *
+     * @author tailam
+     */
+    void poll() {
+        try {
+            while (pollBatch()) {
+                // A full batch, more changes are waiting
+            }
+            if (resync) {
+                int changed = productCacheManager.resync();
+                resync = false;
+                if (changed > 0) {
+                    logger.warn("Resynchronized {} products missing from the product change log", changed);
+                }
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastPurge >= PURGE_INTERVAL_MILLIS) {
+                lastPurge = now;
+                int purged = productChangeRepository.deleteApplied(watermark, new Date(now - retentionMillis));
+                if (purged > 0) {
+                    logger.info("Purged {} entries from the product change log", purged);
+                }
+            }
+            if (failing) {
+                failing = false;
+                logger.info("Polling the product change log again");
+            }
+        } catch (RuntimeException e) {
+            // Logged once per outage, the caches fall back to their ttl meanwhile
+            if (!failing) {
+                failing = true;
+                logger.warn("Could not poll the product change log", e);
+            }
+        }
+    }
+
+    /**
+     * Apply the changes after the last applied one and those found for earlier missing ids
+     *
+     * @return whether the batch was full
+     */
+    private boolean pollBatch() {
+        long after = applied.isEmpty() ? watermark : applied.last();
+        List<ProductChange> changes = new ArrayList<>(
+                productChangeRepository.findChangesAfter(after, PageRequest.of(0, batchSize)));
+        boolean full = changes.size() == batchSize;
+        List<Long> gaps = gaps(after);
+        if (!gaps.isEmpty()) {
+            changes.addAll(productChangeRepository.findChanges(gaps));
+        }
+        if (!changes.isEmpty()) {
+            Set<Integer> productIds = new LinkedHashSet<>();
+            changes.forEach(change -> productIds.add(change.getProductId()));
+            int changed = productCacheManager.applyChanges(productIds);
+            changes.forEach(change -> applied.add(change.getChangeId()));
+            if (changed > 0) {
+                logger.info("Applied {} changed products from {} change log entries", changed, changes.size());
+            }
+        }
+        advance(System.currentTimeMillis());
+        return full;
+    }
+
+    /**
+     * Ids between the watermark and the given one that are not applied yet
+     *
+     * @return changeIds
+     */
+    private List<Long> gaps(long before) {
+        List<Long> gaps = new ArrayList<>();
+        for (long changeId = watermark + 1; changeId < before && gaps.size() < MAX_GAPS; changeId++) {
+            if (!applied.contains(changeId)) {
+                gaps.add(changeId);
+            }
+        }
+        return gaps;
+    }
+
+    /**
+     * Move the watermark over the applied changes that follow it. An id missing after it for longer
+     * than the gap timeout was rolled back or skipped by the sequence, and is given up.
+     *
+     * @author tailam
+     */
+    private void advance(long now) {
+        long start = watermark;
+        while (!applied.isEmpty() && applied.first() == watermark + 1) {
+            watermark = applied.pollFirst();
+        }
+        if (applied.isEmpty()) {
+            gapSince = 0;
+        } else if (watermark != start || gapSince == 0) {
+            gapSince = now;
+        } else if (now - gapSince >= gapTimeoutMillis) {
+            logger.debug("Change ids {} to {} never committed, skipping them", watermark + 1, applied.first() - 1);
+            watermark = applied.first() - 1;
+            advance(now);
+            resync = true;
+        }
+    }
+}
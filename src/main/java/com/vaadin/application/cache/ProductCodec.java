@@ -0,0 +1,217 @@
+package com.vaadin.application.cache;
+
+import com.vaadin.application.model.Product;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Field ordered binary encoding of one Product, shared by ProductSerializer and CatalogImage.
+ * A varint of presence flags comes first, then the present fields in declaration order: the id as a zigzag varint
+ * relative to a base id, the version as a varint, the release date as a varint epoch day when it is a local
+ * midnight (milliseconds otherwise), price and rating as raw floats and the strings as UTF-8.
+ * Every string is preceded by a varint header, the length shifted left or a dictionary index shifted left plus one.
+ *
+ * @author tailam
+ */
+final class ProductCodec {
+
+    /**
+     * Strings stored once and referred to by index, only consulted for low cardinality fields
+     *
+     * @author tailam
+     */
+    interface Dictionary {
+
+        /**
+         * Index of the value, adding it when there is room
+         *
+         * @return index or -1 to write the value inline
+         */
+        int indexOf(String value);
+
+        String get(int index);
+    }
+
+    static final Dictionary NO_DICTIONARY = new Dictionary() {
+        @Override
+        public int indexOf(String value) {
+            return -1;
+        }
+
+        @Override
+        public String get(int index) {
+            throw new IllegalStateException("No string dictionary for index " + index);
+        }
+    };
+
+    private static final int HAS_ID = 1;
+    private static final int HAS_VERSION = 1 << 1;
+    private static final int HAS_RELEASE_DATE = 1 << 2;
+    private static final int RELEASE_DATE_MILLIS = 1 << 3;
+    private static final int HAS_PRICE = 1 << 4;
+    private static final int HAS_STAR_RATING = 1 << 5;
+    private static final int HAS_NAME = 1 << 6;
+    private static final int HAS_CODE = 1 << 7;
+    private static final int HAS_DESCRIPTION = 1 << 8;
+    private static final int HAS_IMAGE_URL = 1 << 9;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private ProductCodec() {
+    }
+
+    static void write(DataOutput out, Product product, int baseId, Dictionary dictionary) throws IOException {
+        Date releaseDate = product.getReleaseDate();
+        long epochDay = releaseDate == null ? 0 : epochDay(releaseDate.getTime());
+        int flags = (product.getProductId() != null ? HAS_ID : 0)
+                | (product.getVersion() != null ? HAS_VERSION : 0)
+                | (releaseDate != null ? HAS_RELEASE_DATE : 0)
+                | (releaseDate != null && epochDay == Long.MIN_VALUE ? RELEASE_DATE_MILLIS : 0)
+                | (product.getPrice() != null ? HAS_PRICE : 0)
+                | (product.getStarRating() != null ? HAS_STAR_RATING : 0)
+                | (product.getProductName() != null ? HAS_NAME : 0)
+                | (product.getProductCode() != null ? HAS_CODE : 0)
+                | (product.getDescription() != null ? HAS_DESCRIPTION : 0)
+                | (product.getImageUrl() != null ? HAS_IMAGE_URL : 0);
+        writeVarLong(out, flags);
+        if ((flags & HAS_ID) != 0) {
+            writeVarLong(out, zigzag(product.getProductId() - (long) baseId));
+        }
+        if ((flags & HAS_VERSION) != 0) {
+            writeVarLong(out, product.getVersion() & 0xFFFFFFFFL);
+        }
+        if ((flags & RELEASE_DATE_MILLIS) != 0) {
+            out.writeLong(releaseDate.getTime());
+        } else if ((flags & HAS_RELEASE_DATE) != 0) {
+            writeVarLong(out, zigzag(epochDay));
+        }
+        if ((flags & HAS_PRICE) != 0) {
+            out.writeFloat(product.getPrice());
+        }
+        if ((flags & HAS_STAR_RATING) != 0) {
+            out.writeFloat(product.getStarRating());
+        }
+        if ((flags & HAS_NAME) != 0) {
+            writeString(out, product.getProductName(), NO_DICTIONARY);
+        }
+        if ((flags & HAS_CODE) != 0) {
+            writeString(out, product.getProductCode(), NO_DICTIONARY);
+        }
+        if ((flags & HAS_DESCRIPTION) != 0) {
+            writeString(out, product.getDescription(), NO_DICTIONARY);
+        }
+        if ((flags & HAS_IMAGE_URL) != 0) {
+            // A handful of bundled images across the whole catalog
+            writeString(out, product.getImageUrl(), dictionary);
+        }
+    }
+
+    static Product read(ByteBuffer in, int baseId, Dictionary dictionary) {
+        int flags = (int) readVarLong(in);
+        Product product = new Product();
+        if ((flags & HAS_ID) != 0) {
+            product.setProductId((int) (baseId + unzigzag(readVarLong(in))));
+        }
+        if ((flags & HAS_VERSION) != 0) {
+            product.setVersion((int) readVarLong(in));
+        }
+        if ((flags & RELEASE_DATE_MILLIS) != 0) {
+            product.setReleaseDate(new Date(in.getLong()));
+        } else if ((flags & HAS_RELEASE_DATE) != 0) {
+            long epochDay = unzigzag(readVarLong(in));
+            product.setReleaseDate(new Date(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZONE).toInstant().toEpochMilli()));
+        }
+        if ((flags & HAS_PRICE) != 0) {
+            product.setPrice(in.getFloat());
+        }
+        if ((flags & HAS_STAR_RATING) != 0) {
+            product.setStarRating(in.getFloat());
+        }
+        if ((flags & HAS_NAME) != 0) {
+            product.setProductName(readString(in, dictionary));
+        }
+        if ((flags & HAS_CODE) != 0) {
+            product.setProductCode(readString(in, dictionary));
+        }
+        if ((flags & HAS_DESCRIPTION) != 0) {
+            product.setDescription(readString(in, dictionary));
+        }
+        if ((flags & HAS_IMAGE_URL) != 0) {
+            product.setImageUrl(readString(in, dictionary));
+        }
+        return product;
+    }
+
+    static void writeString(DataOutput out, String value, Dictionary dictionary) throws IOException {
+        int index = dictionary.indexOf(value);
+        if (index >= 0) {
+            writeVarLong(out, ((long) index << 1) | 1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, (long) bytes.length << 1);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in, Dictionary dictionary) {
+        long header = readVarLong(in);
+        if ((header & 1) != 0) {
+            return dictionary.get((int) (header >>> 1));
+        }
+        int length = (int) (header >>> 1);
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return value;
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    /**
+     * Day of a date that falls on a local midnight, release dates are picked as whole days
+     *
+     * @return epochDay or Long.MIN_VALUE when the date has a time of day
+     */
+    private static long epochDay(long millis) {
+        LocalDate day = Instant.ofEpochMilli(millis).atZone(ZONE).toLocalDate();
+        return day.atStartOfDay(ZONE).toInstant().toEpochMilli() == millis ? day.toEpochDay() : Long.MIN_VALUE;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,163 @@
+package com.vaadin.application.cache;
+
+import com.vaadin.application.model.Product;
+import org.ehcache.impl.serialization.CompactJavaSerializer;
+import org.ehcache.spi.persistence.StateHolder;
+import org.ehcache.spi.persistence.StateRepository;
+import org.ehcache.spi.serialization.SerializerException;
+import org.ehcache.spi.serialization.StatefulSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ehcache serializer of Product for the offheap and disk tiers, registered in ehcache.xml.
+ * Values are one format byte followed by the ProductCodec encoding, image URLs are replaced by an index into a string
+ * dictionary kept in the cache's state repository, so it is persisted along with the disk tier.
+ * Entries written by Java serialization before this serializer was registered are still read.
+ *
+ * @author tailam
+ */
+public class ProductSerializer implements StatefulSerializer<Product> {
+
+    static final byte FORMAT_VERSION = 1;
+
+    private static final String DICTIONARY = "ProductSerializer-strings";
+    private static final int MAX_DICTIONARY_SIZE = 4096;
+    private static final byte JAVA_STREAM_MAGIC = (byte) 0xAC;
+
+    private final CompactJavaSerializer<Product> legacySerializer;
+    private final Map<String, Integer> indexes = new ConcurrentHashMap<>();
+    private final Map<Integer, String> strings = new ConcurrentHashMap<>();
+    private final ProductCodec.Dictionary dictionary = new PersistentDictionary();
+    private StateHolder<Integer, String> stateHolder;
+
+    public ProductSerializer(ClassLoader classLoader) {
+        this.legacySerializer = new CompactJavaSerializer<>(classLoader);
+    }
+
+    @Override
+    public void init(StateRepository stateRepository) {
+        legacySerializer.init(stateRepository);
+        stateHolder = stateRepository.getPersistentStateHolder(DICTIONARY, Integer.class, String.class,
+                type -> type == Integer.class || type == String.class, null);
+        for (Map.Entry<Integer, String> entry : stateHolder.entrySet()) {
+            strings.put(entry.getKey(), entry.getValue());
+            indexes.put(entry.getValue(), entry.getKey());
+        }
+    }
+
+    @Override
+    public ByteBuffer serialize(Product product) throws SerializerException {
+        Output output = new Output();
+        try (DataOutputStream out = new DataOutputStream(output)) {
+            out.writeByte(FORMAT_VERSION);
+            ProductCodec.write(out, product, 0, dictionary);
+        } catch (IOException e) {
+            throw new SerializerException(e);
+        }
+        return output.toByteBuffer();
+    }
+
+    @Override
+    public Product read(ByteBuffer binary) throws ClassNotFoundException, SerializerException {
+        byte format = binary.get(binary.position());
+        if (format == JAVA_STREAM_MAGIC) {
+            return legacySerializer.read(binary);
+        }
+        if (format != FORMAT_VERSION) {
+            throw new SerializerException("Unknown product format " + format);
+        }
+        binary.get();
+        try {
+            return ProductCodec.read(binary, 0, dictionary);
+        } catch (RuntimeException e) {
+            throw new SerializerException(e);
+        }
+    }
+
+    @Override
+    public boolean equals(Product product, ByteBuffer binary) throws ClassNotFoundException, SerializerException {
+        // Product has no equals, and one product has other bytes inline, by dictionary index or in the legacy format
+        return sameFields(product, read(binary.duplicate()));
+    }
+
+    private static boolean sameFields(Product product, Product stored) {
+        return Objects.equals(product.getProductId(), stored.getProductId())
+                && Objects.equals(product.getVersion(), stored.getVersion())
+                && Objects.equals(time(product.getReleaseDate()), time(stored.getReleaseDate()))
+                && Objects.equals(product.getPrice(), stored.getPrice())
+                && Objects.equals(product.getStarRating(), stored.getStarRating())
+                && Objects.equals(product.getProductName(), stored.getProductName())
+                && Objects.equals(product.getProductCode(), stored.getProductCode())
+                && Objects.equals(product.getDescription(), stored.getDescription())
+                && Objects.equals(product.getImageUrl(), stored.getImageUrl());
+    }
+
+    // A Timestamp read by Hibernate never equals a Date of the same instant
+    private static Long time(Date date) {
+        return date == null ? null : date.getTime();
+    }
+
+    /**
+     * Dictionary backed by the state repository, an index once handed out never changes
+     *
+     * @author tailam
+     */
+    private final class PersistentDictionary implements ProductCodec.Dictionary {
+
+        @Override
+        public int indexOf(String value) {
+            Integer index = indexes.get(value);
+            if (index != null) {
+                return index;
+            }
+            synchronized (this) {
+                index = indexes.get(value);
+                if (index != null) {
+                    return index;
+                }
+                if (stateHolder == null || strings.size() >= MAX_DICTIONARY_SIZE) {
+                    return -1;
+                }
+                index = strings.size();
+                String existing = stateHolder.putIfAbsent(index, value);
+                String stored = existing != null ? existing : value;
+                strings.put(index, stored);
+                indexes.put(stored, index);
+                return stored.equals(value) ? index : -1;
+            }
+        }
+
+        @Override
+        public String get(int index) {
+            String value = strings.get(index);
+            if (value == null) {
+                throw new IllegalStateException("No dictionary entry " + index);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Byte array output handing out its buffer without a copy
+     *
+     * @author tailam
+     */
+    private static final class Output extends ByteArrayOutputStream {
+
+        private Output() {
+            super(128);
+        }
+
+        private ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package com.vaadin.application.columnar;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.repository.ProductFilter;
+import com.vaadin.application.repository.ProductRepository;
+import com.vaadin.application.service.ProductChangeListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read-optimized columnar copy of the catalog, one primitive array per field with rows in product id order.
+ * Prices and ratings are floats (NaN when missing), release dates epoch days and strings dictionary codes,
+ * so range filters, sorts and aggregates scan flat arrays without boxing.
+ * Enabled with product.columnar.enabled=true, kept current from product writes.
+ *
+ * @author tailam
+ */
+@Component
+@ConditionalOnProperty(name = "product.columnar.enabled", havingValue = "true")
+public class ProductColumnStore implements ProductChangeListener {
+
+    public static final Set<String> SORTABLE_PROPERTIES = Set.of("productId", "productName",
+            "productCode", "releaseDate", "description", "price", "starRating", "imageUrl");
+
+    private static final Logger logger = LogManager.getLogger(ProductColumnStore.class);
+    private static final int BOOTSTRAP_PAGE_SIZE = 1000;
+    private static final int INITIAL_CAPACITY = 1024;
+    // Sort key of a missing value, after every present value in both directions
+    private static final int MISSING_KEY = Integer.MAX_VALUE;
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+    // Products changed while a rebuild runs, its pages are older than these changes and skip them
+    private Set<Integer> changedDuringRebuild;
+    private final Object rebuildLock = new Object();
+
+    private int size;
+    private int[] productIds;
+    private float[] prices;
+    private float[] starRatings;
+    private int[] releaseDays;
+    private int[] names;
+    private int[] codes;
+    private int[] descriptions;
+    private int[] imageUrls;
+    private StringDictionary nameDictionary;
+    private StringDictionary codeDictionary;
+    private StringDictionary descriptionDictionary;
+    private StringDictionary imageUrlDictionary;
+
+    public ProductColumnStore(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+        clear();
+    }
+
+    /**
+     * Load the columns once the application is up, unless they were filled from the restored catalog
+     *
+     * @author tailam
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Load the columns from the database page by page, queries go to the database meanwhile.
+     * Changes published during the rebuild are applied as they come, a page read before such a change
+     * leaves the product alone rather than load its older state or bring it back after a delete.
+     *
+     * @author tailam
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            boolean complete = false;
+            lock.writeLock().lock();
+            try {
+                ready = false;
+                clear();
+                changedDuringRebuild = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                Integer afterId = 0;
+                List<Product> page;
+                do {
+                    page = productRepository.findPageAfter(afterId, PageRequest.of(0, BOOTSTRAP_PAGE_SIZE));
+                    lock.writeLock().lock();
+                    try {
+                        for (Product product : page) {
+                            if (!changedDuringRebuild.contains(product.getProductId())) {
+                                upsert(product);
+                            }
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                    if (!page.isEmpty()) {
+                        afterId = page.get(page.size() - 1).getProductId();
+                    }
+                } while (page.size() == BOOTSTRAP_PAGE_SIZE);
+                complete = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    changedDuringRebuild = null;
+                    ready = complete;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            logger.info("Loaded {} products into columns in {} ms, about {} KB", size(),
+                    System.currentTimeMillis() - start, estimateBytes() / 1024);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductSaved(Product previous, Product saved) {
+        lock.writeLock().lock();
+        try {
+            upsert(saved);
+            changed(saved);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductDeleted(Product deleted) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(productIds, 0, size, deleted.getProductId());
+            if (row >= 0) {
+                shift(row + 1, row, size - row - 1);
+                size--;
+            }
+            changed(deleted);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCatalogRestored(List<Product> products) {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            lock.writeLock().lock();
+            try {
+                clear();
+                products.forEach(this::upsert);
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Loaded {} restored products into columns in {} ms", size(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    @Override
+    public void onProductsImported(List<Product> imported) {
+        lock.writeLock().lock();
+        try {
+            imported.forEach(this::upsert);
+            imported.forEach(this::changed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Under the write lock
+    private void changed(Product product) {
+        if (changedDuringRebuild != null && product != null && product.getProductId() != null) {
+            changedDuringRebuild.add(product.getProductId());
+        }
+    }
+
+    /**
+     * Ids of products within the range tokens of the filter, free text is ignored.
+     * Ordered by the sort property with product id ascending as tie-breaker, missing values last.
+     *
+     * @return productIds
+     * @throws IllegalArgumentException for a property outside SORTABLE_PROPERTIES
+     */
+    public int[] query(ProductFilter filter, String sortProperty, boolean ascending) {
+        if (!SORTABLE_PROPERTIES.contains(sortProperty)) {
+            throw new IllegalArgumentException("Unsupported sort property: " + sortProperty);
+        }
+        lock.readLock().lock();
+        try {
+            int[] rows = new int[size];
+            int matches = 0;
+            for (int row = 0; row < size; row++) {
+                if (filter.matchesRanges(prices[row], starRatings[row], releaseDays[row])) {
+                    rows[matches++] = row;
+                }
+            }
+            int[] result = new int[matches];
+            if ("productId".equals(sortProperty)) {
+                for (int i = 0; i < matches; i++) {
+                    result[i] = productIds[rows[ascending ? i : matches - 1 - i]];
+                }
+                return result;
+            }
+            // Sort key in the high half and row in the low half, one primitive sort orders both
+            long[] keys = new long[matches];
+            for (int i = 0; i < matches; i++) {
+                int key = sortKey(sortProperty, rows[i]);
+                if (!ascending && key != MISSING_KEY) {
+                    key = ~key;
+                }
+                keys[i] = (long) key << 32 | rows[i];
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < matches; i++) {
+                result[i] = productIds[(int) keys[i]];
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of products within the range tokens of the filter
+     *
+     * @return count
+     */
+    public int count(ProductFilter filter) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                if (filter.matchesRanges(prices[row], starRatings[row], releaseDays[row])) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Product count per price bucket of the given width, bucket number is floor(price / width)
+     *
+     * @return buckets
+     */
+    public SortedMap<Integer, Long> countByPriceBucket(int width) {
+        lock.readLock().lock();
+        try {
+            return countByBucket(prices, width);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Product count per half star, bucket number is floor(starRating * 2)
+     *
+     * @return buckets
+     */
+    public SortedMap<Integer, Long> countByRatingBucket() {
+        lock.readLock().lock();
+        try {
+            return countByBucket(starRatings, 0.5F);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Product count per release year
+     *
+     * @return years
+     */
+    public SortedMap<Integer, Long> countByReleaseYear() {
+        lock.readLock().lock();
+        try {
+            int minDay = Integer.MAX_VALUE;
+            int maxDay = Integer.MIN_VALUE;
+            for (int row = 0; row < size; row++) {
+                int day = releaseDays[row];
+                if (day != ProductFilter.NO_RELEASE_DAY) {
+                    minDay = Math.min(minDay, day);
+                    maxDay = Math.max(maxDay, day);
+                }
+            }
+            SortedMap<Integer, Long> years = new TreeMap<>();
+            if (minDay > maxDay) {
+                return years;
+            }
+            // Count per day first, a year is only resolved once per distinct day
+            long[] days = new long[maxDay - minDay + 1];
+            for (int row = 0; row < size; row++) {
+                int day = releaseDays[row];
+                if (day != ProductFilter.NO_RELEASE_DAY) {
+                    days[day - minDay]++;
+                }
+            }
+            for (int i = 0; i < days.length; i++) {
+                if (days[i] > 0) {
+                    years.merge(LocalDate.ofEpochDay(minDay + (long) i).getYear(), days[i], Long::sum);
+                }
+            }
+            return years;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough heap size of the columns and dictionaries
+     *
+     * @return bytes
+     */
+    public long estimateBytes() {
+        lock.readLock().lock();
+        try {
+            long columns = 8L * (16L + 4L * productIds.length);
+            return columns + nameDictionary.estimateBytes() + codeDictionary.estimateBytes()
+                    + descriptionDictionary.estimateBytes() + imageUrlDictionary.estimateBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int sortKey(String sortProperty, int row) {
+        switch (sortProperty) {
+            case "price":
+                return floatKey(prices[row]);
+            case "starRating":
+                return floatKey(starRatings[row]);
+            case "releaseDate":
+                return releaseDays[row] == ProductFilter.NO_RELEASE_DAY ? MISSING_KEY : releaseDays[row];
+            case "productName":
+                return stringKey(nameDictionary, names[row]);
+            case "productCode":
+                return stringKey(codeDictionary, codes[row]);
+            case "description":
+                return stringKey(descriptionDictionary, descriptions[row]);
+            default:
+                return stringKey(imageUrlDictionary, imageUrls[row]);
+        }
+    }
+
+    /**
+     * Int with the same order as the float, the sign bit flips the order of negative values
+     *
+     * @return key
+     */
+    private static int floatKey(float value) {
+        if (Float.isNaN(value)) {
+            return MISSING_KEY;
+        }
+        int bits = Float.floatToIntBits(value);
+        return bits ^ (bits >> 31 & Integer.MAX_VALUE);
+    }
+
+    private static int stringKey(StringDictionary dictionary, int code) {
+        return code == StringDictionary.NO_VALUE ? MISSING_KEY : dictionary.ranks()[code];
+    }
+
+    private SortedMap<Integer, Long> countByBucket(float[] column, float width) {
+        SortedMap<Integer, Long> buckets = new TreeMap<>();
+        long[] counts = new long[64];
+        int offset = 0;
+        boolean any = false;
+        for (int row = 0; row < size; row++) {
+            float value = column[row];
+            if (Float.isNaN(value)) {
+                continue;
+            }
+            int bucket = (int) Math.floor(value / width);
+            if (!any) {
+                offset = bucket;
+                any = true;
+            }
+            if (bucket < offset) {
+                // Grow towards lower buckets, existing counts move up
+                long[] grown = new long[counts.length + offset - bucket];
+                System.arraycopy(counts, 0, grown, offset - bucket, counts.length);
+                counts = grown;
+                offset = bucket;
+            } else if (bucket - offset >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(counts.length * 2, bucket - offset + 1));
+            }
+            counts[bucket - offset]++;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                buckets.put(offset + i, counts[i]);
+            }
+        }
+        return buckets;
+    }
+
+    private void upsert(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        int row = Arrays.binarySearch(productIds, 0, size, product.getProductId());
+        if (row < 0) {
+            row = -row - 1;
+            ensureCapacity(size + 1);
+            // Ids come from a sequence, new products are nearly always appended
+            shift(row, row + 1, size - row);
+            size++;
+            productIds[row] = product.getProductId();
+        }
+        prices[row] = product.getPrice() == null ? Float.NaN : product.getPrice();
+        starRatings[row] = product.getStarRating() == null ? Float.NaN : product.getStarRating();
+        releaseDays[row] = toEpochDay(product.getReleaseDate());
+        names[row] = nameDictionary.encode(product.getProductName());
+        codes[row] = codeDictionary.encode(product.getProductCode());
+        descriptions[row] = descriptionDictionary.encode(product.getDescription());
+        imageUrls[row] = imageUrlDictionary.encode(product.getImageUrl());
+    }
+
+    private void shift(int from, int to, int length) {
+        if (length <= 0) {
+            return;
+        }
+        System.arraycopy(productIds, from, productIds, to, length);
+        System.arraycopy(prices, from, prices, to, length);
+        System.arraycopy(starRatings, from, starRatings, to, length);
+        System.arraycopy(releaseDays, from, releaseDays, to, length);
+        System.arraycopy(names, from, names, to, length);
+        System.arraycopy(codes, from, codes, to, length);
+        System.arraycopy(descriptions, from, descriptions, to, length);
+        System.arraycopy(imageUrls, from, imageUrls, to, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= productIds.length) {
+            return;
+        }
+        int grown = Math.max(capacity, productIds.length + (productIds.length >> 1));
+        productIds = Arrays.copyOf(productIds, grown);
+        prices = Arrays.copyOf(prices, grown);
+        starRatings = Arrays.copyOf(starRatings, grown);
+        releaseDays = Arrays.copyOf(releaseDays, grown);
+        names = Arrays.copyOf(names, grown);
+        codes = Arrays.copyOf(codes, grown);
+        descriptions = Arrays.copyOf(descriptions, grown);
+        imageUrls = Arrays.copyOf(imageUrls, grown);
+    }
+
+    private void clear() {
+        size = 0;
+        productIds = new int[INITIAL_CAPACITY];
+        prices = new float[INITIAL_CAPACITY];
+        starRatings = new float[INITIAL_CAPACITY];
+        releaseDays = new int[INITIAL_CAPACITY];
+        names = new int[INITIAL_CAPACITY];
+        codes = new int[INITIAL_CAPACITY];
+        descriptions = new int[INITIAL_CAPACITY];
+        imageUrls = new int[INITIAL_CAPACITY];
+        nameDictionary = new StringDictionary();
+        codeDictionary = new StringDictionary();
+        descriptionDictionary = new StringDictionary();
+        imageUrlDictionary = new StringDictionary();
+    }
+
+    private static int toEpochDay(Date date) {
+        if (date == null) {
+            return ProductFilter.NO_RELEASE_DAY;
+        }
+        return (int) LocalDate.ofInstant(Instant.ofEpochMilli(date.getTime()), ZoneId.systemDefault()).toEpochDay();
+    }
+}
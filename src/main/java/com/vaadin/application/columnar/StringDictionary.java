@@ -0,0 +1,141 @@
+package com.vaadin.application.columnar;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Dictionary encoding of one string column: every distinct value is stored once and rows hold its int code.
+ * Values are packed as UTF-8 into one byte array and looked up through an open addressing table of codes,
+ * so a value costs its bytes plus a few ints instead of a String and a map entry.
+ * Codes are never reused, values of rewritten rows stay until the store is rebuilt.
+ *
+ * @author tailam
+ */
+final class StringDictionary {
+
+    static final int NO_VALUE = -1;
+    private static final int EMPTY = -1;
+
+    private byte[] bytes = new byte[1024];
+    private int used;
+    // code -> start of its bytes, the value ends where the next one starts
+    private int[] offsets = new int[65];
+    private int[] hashes = new int[64];
+    private int size;
+    // hash slot -> code, EMPTY when free, at most half full
+    private int[] table = newTable(128);
+    // code -> position of its value in sorted order, computed on first sort after a change
+    private int[] ranks;
+
+    /**
+     * Code of a value, added to the dictionary when new
+     *
+     * @return code or NO_VALUE for null
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NO_VALUE;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        int hash = value.hashCode();
+        int mask = table.length - 1;
+        int slot = spread(hash) & mask;
+        while (table[slot] != EMPTY) {
+            int code = table[slot];
+            if (hashes[code] == hash && Arrays.equals(bytes, offsets[code], offsets[code + 1],
+                    encoded, 0, encoded.length)) {
+                return code;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(encoded, hash, slot);
+    }
+
+    String decode(int code) {
+        return code == NO_VALUE ? null
+                : new String(bytes, offsets[code], offsets[code + 1] - offsets[code], StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sort position of every code, by String.compareTo like the database and the cached catalog sort
+     *
+     * @return ranks indexed by code
+     */
+    synchronized int[] ranks() {
+        if (ranks == null) {
+            String[] values = new String[size];
+            Integer[] codes = new Integer[size];
+            for (int code = 0; code < size; code++) {
+                values[code] = decode(code);
+                codes[code] = code;
+            }
+            // Not UTF-8 byte order: UTF-16 units order supplementary characters differently
+            Arrays.sort(codes, (left, right) -> values[left].compareTo(values[right]));
+            int[] positions = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[codes[i]] = i;
+            }
+            ranks = positions;
+        }
+        return ranks;
+    }
+
+    /**
+     * Heap size of the value bytes, offsets, hashes, lookup table and ranks
+     *
+     * @return bytes
+     */
+    long estimateBytes() {
+        return 16L + bytes.length + 4L * (offsets.length + hashes.length + table.length)
+                + (ranks == null ? 0 : 16L + 4L * ranks.length);
+    }
+
+    private int add(byte[] encoded, int hash, int slot) {
+        if (used + encoded.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, used + encoded.length));
+        }
+        if (size + 1 == hashes.length) {
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+            offsets = Arrays.copyOf(offsets, hashes.length + 1);
+        }
+        int code = size++;
+        System.arraycopy(encoded, 0, bytes, used, encoded.length);
+        offsets[code] = used;
+        used += encoded.length;
+        offsets[code + 1] = used;
+        hashes[code] = hash;
+        table[slot] = code;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        ranks = null;
+        return code;
+    }
+
+    private void rehash(int capacity) {
+        int[] grown = newTable(capacity);
+        int mask = capacity - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = spread(hashes[code]) & mask;
+            while (grown[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = code;
+        }
+        table = grown;
+    }
+
+    private static int[] newTable(int capacity) {
+        int[] table = new int[capacity];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,19 @@
+package com.vaadin.application.error;
+
+/**
+ * Exception for a product changed by someone else since it was read
+ *
+ * @author tailam
+ */
+public class ProductConflictException extends RuntimeException {
+    private final Integer productId;
+
+    public ProductConflictException(Integer productId, String messageString) {
+        super(messageString);
+        this.productId = productId;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+}
@@ -0,0 +1,56 @@
+package com.vaadin.application.metrics;
+
+/**
+ * Open Vaadin sessions and UIs, the heap in use and the size of the catalog snapshot they all share.
+ * Heap per session is not derived from these, the load test measures it as what closing its sessions releases.
+ *
+ * @author tailam
+ */
+public class SessionMemoryReport {
+
+    private final int sessions;
+    private final int uis;
+    private final long heapUsedBytes;
+    private final long catalogVersion;
+    private final int catalogProducts;
+    private final long catalogBytes;
+
+    public SessionMemoryReport(int sessions, int uis, long heapUsedBytes, long catalogVersion,
+                               int catalogProducts, long catalogBytes) {
+        this.sessions = sessions;
+        this.uis = uis;
+        this.heapUsedBytes = heapUsedBytes;
+        this.catalogVersion = catalogVersion;
+        this.catalogProducts = catalogProducts;
+        this.catalogBytes = catalogBytes;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public int getUis() {
+        return uis;
+    }
+
+    public long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    public int getCatalogProducts() {
+        return catalogProducts;
+    }
+
+    /**
+     * Estimated size of the one catalog snapshot all UIs share
+     *
+     * @return bytes
+     */
+    public long getCatalogBytes() {
+        return catalogBytes;
+    }
+}
@@ -0,0 +1,48 @@
+package com.vaadin.application.metrics;
+
+import com.vaadin.flow.server.ServiceInitEvent;
+import com.vaadin.flow.server.VaadinServiceInitListener;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gauges of open Vaadin sessions and attached UIs
+ *
+ * @author tailam
+ */
+@Component
+public class VaadinSessionMetrics implements VaadinServiceInitListener {
+
+    private final AtomicInteger sessions = new AtomicInteger();
+    private final AtomicInteger uis = new AtomicInteger();
+
+    public VaadinSessionMetrics(MeterRegistry meterRegistry) {
+        Gauge.builder("vaadin.sessions", sessions, AtomicInteger::get)
+                .description("Open Vaadin sessions")
+                .register(meterRegistry);
+        Gauge.builder("vaadin.uis", uis, AtomicInteger::get)
+                .description("Attached Vaadin UIs")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void serviceInit(ServiceInitEvent event) {
+        event.getSource().addSessionInitListener(init -> sessions.incrementAndGet());
+        event.getSource().addSessionDestroyListener(destroy -> sessions.decrementAndGet());
+        event.getSource().addUIInitListener(init -> {
+            uis.incrementAndGet();
+            init.getUI().addDetachListener(detach -> uis.decrementAndGet());
+        });
+    }
+
+    public int getSessions() {
+        return sessions.get();
+    }
+
+    public int getUis() {
+        return uis.get();
+    }
+}
@@ -1,5 +1,9 @@
 package com.vaadin.application.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Date;
@@ -13,12 +17,15 @@ import java.util.List;
  */
 @Entity
 @Table(name = "product")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate
 public class Product implements Serializable {
 
     @Id
     @Column(name = "product_id")
     @GeneratedValue(strategy=GenerationType.SEQUENCE, generator = "productId")
-    @SequenceGenerator(name = "productId", sequenceName = "next_val")
+    @SequenceGenerator(name = "productId", sequenceName = "next_val", allocationSize = 50)
     private Integer productId;
 
     @Column(name = "product_name")
@@ -42,6 +49,11 @@ public class Product implements Serializable {
     @Column(name = "image_url")
     private String imageUrl;
 
+    // Optimistic lock, checked and incremented by every update
+    @Version
+    @Column(name = "version")
+    private Integer version;
+
     public Product(Integer productId, String productName, String productCode,
                    Date releaseDate, String description, Float price,
                    Float starRating, String imageUrl) {
@@ -59,6 +71,13 @@ public class Product implements Serializable {
 
     }
 
+    public Product(Product product) {
+        this(product.productId, product.productName, product.productCode,
+                product.releaseDate == null ? null : new Date(product.releaseDate.getTime()),
+                product.description, product.price, product.starRating, product.imageUrl);
+        this.version = product.version;
+    }
+
     public Integer getProductId() {
         return productId;
     }
@@ -127,6 +146,14 @@ public class Product implements Serializable {
         this.imageUrl = imageUrl;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public void setVersion(Integer version) {
+        this.version = version;
+    }
+
     public List<Product> getProducts() {
         return new LinkedList<>();
     }
@@ -0,0 +1,58 @@
+package com.vaadin.application.model;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Date;
+
+/**
+ * Entry of product_change_log, written by the product_change_trg trigger and never by the application
+ *
+ * @author tailam
+ */
+@Entity
+@Immutable
+@Table(name = "product_change_log")
+public class ProductChange {
+
+    @Id
+    @Column(name = "change_id")
+    private Long changeId;
+
+    @Column(name = "product_id")
+    private Integer productId;
+
+    // I, U or D
+    @Column(name = "operation", length = 1)
+    private String operation;
+
+    // Row version after the change, before it for a delete
+    @Column(name = "version")
+    private Integer version;
+
+    @Column(name = "changed_at")
+    private Date changedAt;
+
+    public Long getChangeId() {
+        return changeId;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Integer getVersion() {
+        return version;
+    }
+
+    public Date getChangedAt() {
+        return changedAt;
+    }
+}
@@ -0,0 +1,104 @@
+package com.vaadin.application.model;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Immutable grid row of a product, display strings are formatted once when the row is loaded
+ *
+ * @author tailam
+ */
+public final class ProductRow implements Serializable {
+
+    private static final DateTimeFormatter RELEASE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private final Integer productId;
+    private final String productName;
+    private final String productCode;
+    private final String releaseDate;
+    private final String price;
+    private final String starRating;
+    private final String imageUrl;
+
+    /**
+     * Constructor used by the repository projection queries
+     *
+     * @author tailam
+     */
+    public ProductRow(Integer productId, String productName, String productCode, Date releaseDate,
+                      Float price, Float starRating, String imageUrl) {
+        this.productId = productId;
+        this.productName = productName;
+        this.productCode = productCode == null ? "" : productCode.toUpperCase();
+        this.releaseDate = formatReleaseDate(releaseDate);
+        this.price = price == null ? "$0.00" : String.format(Locale.US, "$%(,.2f", price);
+        this.starRating = starRating == null ? "" : BigDecimal.valueOf(starRating)
+                .setScale(2, RoundingMode.HALF_EVEN).stripTrailingZeros().toPlainString();
+        this.imageUrl = imageUrl;
+    }
+
+    public static ProductRow of(Product product) {
+        return new ProductRow(product.getProductId(), product.getProductName(), product.getProductCode(),
+                product.getReleaseDate(), product.getPrice(), product.getStarRating(), product.getImageUrl());
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getProductCode() {
+        return productCode;
+    }
+
+    public String getReleaseDate() {
+        return releaseDate;
+    }
+
+    public String getPrice() {
+        return price;
+    }
+
+    public String getStarRating() {
+        return starRating;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return Objects.equals(productId, ((ProductRow) o).productId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(productId);
+    }
+
+    private static String formatReleaseDate(Date releaseDate) {
+        if (releaseDate == null) {
+            return "";
+        }
+        return LocalDate.ofInstant(Instant.ofEpochMilli(releaseDate.getTime()), ZoneId.systemDefault())
+                .format(RELEASE_DATE_FORMAT);
+    }
+}
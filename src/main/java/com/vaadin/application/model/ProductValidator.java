@@ -0,0 +1,85 @@
+package com.vaadin.application.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Product field rules shared by the product forms and the bulk import
+ *
+ * @author tailam
+ */
+public final class ProductValidator {
+
+    public static final String MUST_HAVE_CONTENT = "*Must have content";
+    public static final String NAME_MESSAGE = "*Name must contain at least 3 characters";
+    public static final String CODE_MESSAGE = "*Code must contain at least 6 characters with correction format \n" +
+            "*Example: ABC-1234";
+    public static final String DESCRIPTION_MESSAGE = "*Description have maximum with 50 characters";
+    public static final String RELEASE_DATE_MESSAGE = "*Please choose a date by button";
+    public static final String PRICE_MESSAGE = "*Price must be between 1 and 10000 \n with correction format: ##,###.##";
+    public static final String STAR_RATING_MESSAGE = "*Star Rating must be between 1 and 5 \n" +
+            " with correction format: #.##";
+    public static final String IMAGE_URL_MESSAGE = "*Must be .PNG file";
+
+    private ProductValidator() {
+    }
+
+    public static boolean hasContent(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    public static boolean isValidName(String productName) {
+        return productName.length() >= 3;
+    }
+
+    public static boolean isValidCode(String productCode) {
+        return productCode.length() >= 6 && productCode.contains("-");
+    }
+
+    public static boolean isValidDescription(String description) {
+        return description.length() <= 50;
+    }
+
+    public static boolean isValidPrice(float price) {
+        return price >= 1.00F && price <= 10000.00F;
+    }
+
+    public static boolean isValidStarRating(float starRating) {
+        return starRating >= 1.00F && starRating <= 5.00F;
+    }
+
+    public static boolean isValidImageUrl(String imageUrl) {
+        return imageUrl.contains(".png");
+    }
+
+    /**
+     * Validate every field of a product
+     *
+     * @return messages, empty when the product is valid
+     */
+    public static List<String> validate(Product product) {
+        List<String> messages = new ArrayList<>();
+        if (!hasContent(product.getProductName()) || !isValidName(product.getProductName())) {
+            messages.add("productName: " + NAME_MESSAGE);
+        }
+        if (!hasContent(product.getProductCode()) || !isValidCode(product.getProductCode())) {
+            messages.add("productCode: " + CODE_MESSAGE);
+        }
+        if (!hasContent(product.getDescription()) || !isValidDescription(product.getDescription())) {
+            messages.add("description: " + DESCRIPTION_MESSAGE);
+        }
+        if (product.getReleaseDate() == null) {
+            messages.add("releaseDate: " + MUST_HAVE_CONTENT);
+        }
+        if (product.getPrice() == null || !isValidPrice(product.getPrice())) {
+            messages.add("price: " + PRICE_MESSAGE);
+        }
+        if (product.getStarRating() == null || !isValidStarRating(product.getStarRating())) {
+            messages.add("starRating: " + STAR_RATING_MESSAGE);
+        }
+        if (!hasContent(product.getImageUrl()) || !isValidImageUrl(product.getImageUrl())) {
+            messages.add("imageUrl: " + IMAGE_URL_MESSAGE);
+        }
+        return messages;
+    }
+}
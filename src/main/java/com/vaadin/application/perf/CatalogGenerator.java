@@ -0,0 +1,154 @@
+package com.vaadin.application.perf;
+
+import com.vaadin.application.model.Product;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic product catalog for performance work. Every product is derived from the seed and its id only,
+ * so the same seed always gives the same catalog and any id range can be generated on its own.
+ * Categories and brands follow a Zipf distribution, prices are log-normal around a category median,
+ * ratings cluster around 4 and release dates lean towards recent years, like a real shop catalog.
+ * All generated products pass ProductValidator.
+ *
+ * @author tailam
+ */
+public final class CatalogGenerator {
+
+    public static final long DEFAULT_SEED = 42L;
+
+    private static final Category[] CATEGORIES = {
+            new Category("Mouse", "MOU", "mouse.png", 25, 0.6),
+            new Category("Keyboard", "KBD", "keyboard.png", 45, 0.6),
+            new Category("Laptop", "LAP", "laptop.png", 900, 0.5),
+            new Category("Iphone", "IPH", "iphone.png", 800, 0.4),
+            new Category("Light", "LGT", "light.png", 18, 0.7),
+            new Category("RAM", "RAM", "ram.png", 60, 0.5),
+            new Category("Hammer", "HMR", "hammer.png", 15, 0.5),
+            new Category("Ipad", "IPD", "ipad.png", 550, 0.4),
+            new Category("Xbox Controller", "XBC", "xbox-controller.png", 55, 0.3),
+            new Category("CPU", "CPU", "cpu.png", 250, 0.7),
+            new Category("Nvidia Card", "NVC", "nvidia.png", 600, 0.6),
+            new Category("Saw", "SAW", "saw.png", 20, 0.5),
+            new Category("Garden Cart", "GCT", "garden_cart.png", 90, 0.4),
+            new Category("Leaf Rake", "LRK", "leaf_rake.png", 14, 0.4)};
+    private static final String[] BRANDS = {"Logitech", "Dell", "Apple", "Samsung", "Lenovo", "Asus", "Bosch",
+            "Makita", "Philips", "Kingston", "Corsair", "Microsoft", "Stanley", "Fiskars", "Gardena", "Acer",
+            "HP", "Razer", "Intel", "Gigabyte"};
+    private static final String[] MATERIALS = {"Steel", "Plastic", "Aluminium", "Wooden", "Carbon", "Glass"};
+    private static final String[] FEATURES = {"New Generation", "Silent", "Wireless", "Pro", "Compact", "Heavy Duty",
+            "Gaming", "Eco", "Limited Edition", "Refurbished"};
+    private static final double CATEGORY_SKEW = 1.1;
+    private static final double BRAND_SKEW = 1.3;
+    private static final LocalDate FIRST_RELEASE = LocalDate.of(2010, 1, 1);
+    private static final LocalDate LAST_RELEASE = LocalDate.of(2021, 12, 31);
+    private static final float MIN_PRICE = 1F;
+    private static final float MAX_PRICE = 10000F;
+    private static final String IMAGE_PATH = "assets/images/";
+
+    private final long seed;
+    private final double[] categoryWeights = cumulativeZipf(CATEGORIES.length, CATEGORY_SKEW);
+    private final double[] brandWeights = cumulativeZipf(BRANDS.length, BRAND_SKEW);
+    private final long releaseDays = ChronoUnit.DAYS.between(FIRST_RELEASE, LAST_RELEASE);
+
+    public CatalogGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Products with ids 1..size
+     *
+     * @return listProduct
+     */
+    public List<Product> generate(int size) {
+        List<Product> products = new ArrayList<>(size);
+        for (int id = 1; id <= size; id++) {
+            products.add(product(id));
+        }
+        return products;
+    }
+
+    /**
+     * The product with this id, always the same for the same seed
+     *
+     * @return product
+     */
+    public Product product(int productId) {
+        Random random = new Random(mix(seed, productId));
+        Category category = CATEGORIES[pick(categoryWeights, random.nextDouble())];
+        String brand = BRANDS[pick(brandWeights, random.nextDouble())];
+        String feature = FEATURES[random.nextInt(FEATURES.length)];
+
+        // Square root leans towards the end of the range, newer products are more common
+        long day = (long) (Math.sqrt(random.nextDouble()) * releaseDays);
+        LocalDate releaseDate = FIRST_RELEASE.plusDays(day);
+        float price = (float) (category.medianPrice * Math.exp(category.priceSigma * random.nextGaussian()));
+        price = Math.round(Math.max(MIN_PRICE, Math.min(MAX_PRICE, price)) * 100) / 100F;
+        float starRating = (float) Math.max(1, Math.min(5, 4.1 + 0.6 * random.nextGaussian()));
+        starRating = Math.round(starRating * 100) / 100F;
+
+        Product product = new Product(productId,
+                category.name + " " + brand + " " + (100 + random.nextInt(900)),
+                category.code + "-" + String.format("%06d", productId % 1_000_000),
+                Date.from(releaseDate.atStartOfDay(ZoneId.systemDefault()).toInstant()),
+                MATERIALS[random.nextInt(MATERIALS.length)] + " " + category.name.toLowerCase() + ", " + feature,
+                price,
+                starRating,
+                IMAGE_PATH + category.image);
+        product.setVersion(0);
+        return product;
+    }
+
+    private static double[] cumulativeZipf(int size, double skew) {
+        double[] weights = new double[size];
+        double total = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            total += 1 / Math.pow(rank, skew);
+            weights[rank - 1] = total;
+        }
+        for (int i = 0; i < size; i++) {
+            weights[i] /= total;
+        }
+        return weights;
+    }
+
+    private static int pick(double[] cumulativeWeights, double value) {
+        int index = Arrays.binarySearch(cumulativeWeights, value);
+        return Math.min(cumulativeWeights.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    /**
+     * Spread seed and id over all bits, neighbouring ids must not give correlated random sequences
+     *
+     * @return mixed
+     */
+    private static long mix(long seed, int productId) {
+        long value = seed * 0x9E3779B97F4A7C15L + productId;
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    private static final class Category {
+        private final String name;
+        private final String code;
+        private final String image;
+        private final double medianPrice;
+        private final double priceSigma;
+
+        private Category(String name, String code, String image, double medianPrice, double priceSigma) {
+            this.name = name;
+            this.code = code;
+            this.image = image;
+            this.medianPrice = medianPrice;
+            this.priceSigma = priceSigma;
+        }
+    }
+}
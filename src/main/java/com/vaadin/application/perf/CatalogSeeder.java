@@ -0,0 +1,102 @@
+package com.vaadin.application.perf;
+
+import com.vaadin.application.model.Product;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seeds the embedded database of the perf profile with a generated catalog, before the caches and indexes
+ * are built on application ready. A database that already holds products is left as it is.
+ * Rows are written with JDBC batches, one transaction per batch. The change log trigger is created afterwards,
+ * so seeding logs no changes, and before ProductChangePoller checks for it.
+ *
+ * @author tailam
+ */
+@Component
+@Profile("perf")
+public class CatalogSeeder {
+
+    private static final Logger logger = LogManager.getLogger(CatalogSeeder.class);
+    private static final String TRIGGER_SCRIPT = "schema-perf-trigger.sql";
+    private static final String INSERT = "INSERT INTO product (product_id, product_name, product_code, release_date,"
+            + " description, price, star_rating, image_url, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final int catalogSize;
+    private final long seed;
+    private final int batchSize;
+
+    public CatalogSeeder(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                         EntityManagerFactory entityManagerFactory,
+                         @Value("${product.perf.catalog-size:100000}") int catalogSize,
+                         @Value("${product.perf.seed:" + CatalogGenerator.DEFAULT_SEED + "}") long seed,
+                         @Value("${product.perf.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.catalogSize = catalogSize;
+        this.seed = seed;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void seedCatalog() {
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Long.class);
+        if (existing != null && existing > 0) {
+            logger.info("Catalog already holds {} products, not seeding", existing);
+        } else {
+            // An empty file database of an earlier run may have the trigger already
+            jdbcTemplate.execute("DROP TRIGGER IF EXISTS product_change_trg");
+            seed(catalogSize);
+        }
+        new ResourceDatabasePopulator(new ClassPathResource(TRIGGER_SCRIPT)).execute(jdbcTemplate.getDataSource());
+    }
+
+    /**
+     * Insert products 1..size and move the id sequence past them
+     *
+     * @author tailam
+     */
+    public void seed(int size) {
+        long start = System.currentTimeMillis();
+        CatalogGenerator generator = new CatalogGenerator(seed);
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (int id = 1; id <= size; id++) {
+            Product product = generator.product(id);
+            batch.add(new Object[]{product.getProductId(), product.getProductName(), product.getProductCode(),
+                    new Timestamp(product.getReleaseDate().getTime()), product.getDescription(),
+                    product.getPrice(), product.getStarRating(), product.getImageUrl(), product.getVersion()});
+            if (batch.size() == batchSize || id == size) {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT, batch));
+                batch.clear();
+            }
+        }
+        // Seeded ids were set explicitly, products saved afterwards must be numbered after them
+        jdbcTemplate.execute("ALTER SEQUENCE next_val RESTART WITH " + (size + 1));
+        // Written behind Hibernate's back, nothing cached from an earlier run may survive
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        logger.info("Seeded {} products with seed {} in {} ms ({} rows/s)", size, seed, elapsed,
+                size * 1000L / elapsed);
+    }
+}
@@ -0,0 +1,93 @@
+package com.vaadin.application.provider;
+
+import com.vaadin.application.model.ProductRow;
+import com.vaadin.application.repository.OffsetPageRequest;
+import com.vaadin.application.service.ProductService;
+import com.vaadin.flow.data.provider.AbstractBackEndDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.flow.data.provider.QuerySortOrder;
+import com.vaadin.flow.data.provider.SortDirection;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Lazy data provider of product grid rows, paging and sorting in the database
+ *
+ * @author tailam
+ */
+public class ProductDataProvider extends AbstractBackEndDataProvider<ProductRow, String> {
+
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("productId", "productName",
+            "productCode", "releaseDate", "description", "price", "starRating", "imageUrl");
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.ASC, "productId");
+
+    private final ProductService productService;
+
+    // Keyset cursor of the last page fetched in default order
+    private String cursorFilter;
+    private int cursorOffset = -1;
+    private Integer cursorProductId;
+
+    public ProductDataProvider(ProductService productService) {
+        this.productService = productService;
+    }
+
+    @Override
+    protected Stream<ProductRow> fetchFromBackEnd(Query<ProductRow, String> query) {
+        String filter = query.getFilter().orElse(null);
+        Sort sort = toSort(query.getSortOrders());
+        boolean defaultOrder = sort.isUnsorted();
+
+        List<ProductRow> rows;
+        if (defaultOrder && query.getOffset() > 0 && query.getOffset() == cursorOffset
+                && Objects.equals(filter, cursorFilter)) {
+            // Sequential scroll: continue after the last seen id instead of OFFSET n
+            rows = productService.findProductRowsAfter(cursorProductId, filter, query.getLimit());
+        } else {
+            rows = productService.findProductRows(filter, new OffsetPageRequest(query.getOffset(),
+                    query.getLimit(), defaultOrder ? DEFAULT_SORT : sort.and(DEFAULT_SORT)));
+        }
+
+        if (defaultOrder && !rows.isEmpty()) {
+            cursorFilter = filter;
+            cursorOffset = query.getOffset() + rows.size();
+            cursorProductId = rows.get(rows.size() - 1).getProductId();
+        }
+        return rows.stream();
+    }
+
+    @Override
+    protected int sizeInBackEnd(Query<ProductRow, String> query) {
+        return (int) productService.countProducts(query.getFilter().orElse(null));
+    }
+
+    @Override
+    public Object getId(ProductRow row) {
+        return row.getProductId();
+    }
+
+    @Override
+    public void refreshAll() {
+        cursorOffset = -1;
+        cursorProductId = null;
+        super.refreshAll();
+    }
+
+    private static Sort toSort(List<QuerySortOrder> sortOrders) {
+        List<Sort.Order> orders = new ArrayList<>();
+        for (QuerySortOrder sortOrder : sortOrders) {
+            if (!SORTABLE_PROPERTIES.contains(sortOrder.getSorted())) {
+                continue;
+            }
+            orders.add(sortOrder.getDirection() == SortDirection.DESCENDING
+                    ? Sort.Order.desc(sortOrder.getSorted())
+                    : Sort.Order.asc(sortOrder.getSorted()));
+        }
+        return Sort.by(orders);
+    }
+}
@@ -0,0 +1,220 @@
+package com.vaadin.application.push;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.service.ProductChangeListener;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.function.SerializableConsumer;
+import com.vaadin.flow.shared.Registration;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hub pushing product changes to every attached UI, changes are coalesced per product
+ * and delivered once per push interval
+ *
+ * @author tailam
+ */
+@Component
+public class ProductChangeBroadcaster implements ProductChangeListener {
+
+    private static final Logger logger = LogManager.getLogger(ProductChangeBroadcaster.class);
+
+    /**
+     * Kind of change of one product
+     *
+     * @author tailam
+     */
+    public enum ChangeType {
+        ADDED, UPDATED, REMOVED
+    }
+
+    private final long pushIntervalMillis;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-change-broadcaster");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this
+    private Map<Integer, Change> pending = new LinkedHashMap<>();
+    private boolean bulk;
+
+    public ProductChangeBroadcaster(@Value("${product.push.interval-ms:250}") long pushIntervalMillis) {
+        this.pushIntervalMillis = pushIntervalMillis;
+    }
+
+    @PostConstruct
+    void start() {
+        executor.scheduleWithFixedDelay(this::flush, pushIntervalMillis, pushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Deliver change batches to the consumer inside UI.access until the registration is removed
+     *
+     * @return registration
+     */
+    public Registration register(UI ui, SerializableConsumer<Changes> consumer) {
+        Subscription subscription = new Subscription(ui, consumer);
+        subscriptions.add(subscription);
+        return () -> subscriptions.remove(subscription);
+    }
+
+    @Override
+    public void onProductSaved(Product previous, Product saved) {
+        enqueue(new Change(previous == null ? ChangeType.ADDED : ChangeType.UPDATED, saved.getProductId(),
+                new Product(saved)));
+    }
+
+    @Override
+    public void onProductDeleted(Product deleted) {
+        enqueue(new Change(ChangeType.REMOVED, deleted.getProductId(), null));
+    }
+
+    @Override
+    public synchronized void onProductsImported(List<Product> imported) {
+        // Too many rows to ship one by one, subscribers reload instead
+        bulk = true;
+    }
+
+    private synchronized void enqueue(Change change) {
+        Change merged = merge(pending.get(change.productId), change);
+        if (merged == null) {
+            pending.remove(change.productId);
+        } else {
+            pending.put(change.productId, merged);
+        }
+    }
+
+    /**
+     * Collapse two successive changes of the same product into one
+     *
+     * @return change, null when the changes cancel out
+     */
+    private static Change merge(Change previous, Change next) {
+        if (previous == null) {
+            return next;
+        }
+        if (previous.type == ChangeType.ADDED) {
+            return next.type == ChangeType.REMOVED ? null
+                    : new Change(ChangeType.ADDED, next.productId, next.product);
+        }
+        if (previous.type == ChangeType.REMOVED && next.type == ChangeType.ADDED) {
+            return new Change(ChangeType.UPDATED, next.productId, next.product);
+        }
+        return next;
+    }
+
+    void flush() {
+        Changes changes;
+        synchronized (this) {
+            if (pending.isEmpty() && !bulk) {
+                return;
+            }
+            changes = new Changes(new ArrayList<>(pending.values()), bulk);
+            pending = new LinkedHashMap<>();
+            bulk = false;
+        }
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.ui.access(() -> subscription.consumer.accept(changes));
+            } catch (UIDetachedException e) {
+                subscriptions.remove(subscription);
+            } catch (RuntimeException e) {
+                logger.warn("Could not push product changes to UI {}", subscription.ui.getUIId(), e);
+            }
+        }
+    }
+
+    private static final class Subscription {
+        private final UI ui;
+        private final SerializableConsumer<Changes> consumer;
+
+        private Subscription(UI ui, SerializableConsumer<Changes> consumer) {
+            this.ui = ui;
+            this.consumer = consumer;
+        }
+    }
+
+    /**
+     * Latest change of one product within a push interval
+     *
+     * @author tailam
+     */
+    public static final class Change {
+        private final ChangeType type;
+        private final Integer productId;
+        private final Product product;
+
+        private Change(ChangeType type, Integer productId, Product product) {
+            this.type = type;
+            this.productId = productId;
+            this.product = product;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        public Integer getProductId() {
+            return productId;
+        }
+
+        /**
+         * Product after the change, null when removed
+         *
+         * @return product
+         */
+        public Product getProduct() {
+            return product;
+        }
+    }
+
+    /**
+     * Changes of one push interval
+     *
+     * @author tailam
+     */
+    public static final class Changes {
+        private final List<Change> changes;
+        private final boolean bulk;
+
+        private Changes(List<Change> changes, boolean bulk) {
+            this.changes = Collections.unmodifiableList(changes);
+            this.bulk = bulk;
+        }
+
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        /**
+         * True when rows were added or removed and views should reload instead of refreshing items
+         *
+         * @return structural
+         */
+        public boolean isStructural() {
+            return bulk || changes.stream().anyMatch(change -> change.type != ChangeType.UPDATED);
+        }
+    }
+}
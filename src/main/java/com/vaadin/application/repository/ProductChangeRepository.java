@@ -0,0 +1,69 @@
+package com.vaadin.application.repository;
+
+import com.vaadin.application.model.ProductChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Product change log Repository, read by ProductChangePoller
+ *
+ * @author tailam
+ */
+@Repository
+@RepositoryRestResource(exported = false)
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    /**
+     * Changes after the given change id in change id order
+     *
+     * @return productChanges
+     */
+    @Query("select c from ProductChange c where c.changeId > :afterId order by c.changeId")
+    List<ProductChange> findChangesAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Changes with the given ids, used to look again for ids that were missing between committed changes
+     *
+     * @return productChanges
+     */
+    @Query("select c from ProductChange c where c.changeId in :changeIds")
+    List<ProductChange> findChanges(@Param("changeIds") Collection<Long> changeIds);
+
+    /**
+     * Highest change id logged so far
+     *
+     * @return changeId or null for an empty log
+     */
+    @Query("select max(c.changeId) from ProductChange c")
+    Long findLastChangeId();
+
+    /**
+     * Enabled change log triggers on the product table, product_change_trg of demo_db.sql.
+     * ddl-auto creates the log table but not the trigger, without it the log stays empty.
+     *
+     * @return trigger count
+     */
+    @Query(value = "select count(*) from user_triggers where upper(trigger_name) = 'PRODUCT_CHANGE_TRG'"
+            + " and upper(table_name) = 'PRODUCT' and status = 'ENABLED'", nativeQuery = true)
+    long countChangeTriggers();
+
+    /**
+     * Purge changes up to the given id that are older than the given time
+     *
+     * @return deleted row count
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from ProductChange c where c.changeId <= :changeId and c.changedAt < :before")
+    int deleteApplied(@Param("changeId") Long changeId, @Param("before") Date before);
+}
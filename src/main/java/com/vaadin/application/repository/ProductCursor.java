@@ -0,0 +1,133 @@
+package com.vaadin.application.repository;
+
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.Tuple;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Keyset position in a product listing: the sort value and product id of the last row returned.
+ * Encoded as an opaque URL-safe continuation token.
+ *
+ * @author tailam
+ */
+public final class ProductCursor {
+
+    private static final String VERSION = "v1";
+    private static final char SEPARATOR = ':';
+
+    // Sort columns backed by an index in demo_db.sql, with the type of their cursor value.
+    // Float columns keep the stored double, a float rounded value would not match its own row again.
+    public static final Map<String, Class<?>> SORT_PROPERTIES = Map.of(
+            "productId", Integer.class,
+            "price", Double.class,
+            "starRating", Double.class,
+            "releaseDate", Date.class);
+
+    private final String sortProperty;
+    private final Sort.Direction direction;
+    private final Object value;
+    private final Integer productId;
+
+    public ProductCursor(String sortProperty, Sort.Direction direction, Object value, Integer productId) {
+        if (!SORT_PROPERTIES.containsKey(sortProperty)) {
+            throw new IllegalArgumentException("Unsupported sort property: " + sortProperty);
+        }
+        this.sortProperty = sortProperty;
+        this.direction = Objects.requireNonNull(direction);
+        this.value = value;
+        this.productId = Objects.requireNonNull(productId);
+    }
+
+    /**
+     * Cursor after a row of a keyset page, see ProductRepositoryCustom.findKeysetPage
+     *
+     * @return cursor
+     */
+    public static ProductCursor after(Tuple row, String sortProperty, Sort.Direction direction) {
+        boolean converted = row.getElements().stream()
+                .anyMatch(element -> ProductRepositoryCustom.CURSOR_VALUE.equals(element.getAlias()));
+        Object value = row.get(converted ? ProductRepositoryCustom.CURSOR_VALUE : sortProperty);
+        return new ProductCursor(sortProperty, direction, value, (Integer) row.get("productId"));
+    }
+
+    public String getSortProperty() {
+        return sortProperty;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Sort value of the last row, null when that row had no value
+     *
+     * @return value
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    /**
+     * Continuation token of this cursor
+     *
+     * @return token
+     */
+    public String encode() {
+        String text = VERSION + SEPARATOR + sortProperty + SEPARATOR + direction.name().charAt(0) + SEPARATOR
+                + productId + SEPARATOR + encodeValue(value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Cursor of a continuation token
+     *
+     * @return cursor
+     * @throws IllegalArgumentException when the token is malformed
+     */
+    public static ProductCursor decode(String token) {
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = text.split(String.valueOf(SEPARATOR), 5);
+            if (parts.length != 5 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Sort.Direction direction = "A".equals(parts[2]) ? Sort.Direction.ASC : Sort.Direction.DESC;
+            Class<?> type = SORT_PROPERTIES.get(parts[1]);
+            if (type == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new ProductCursor(parts[1], direction, decodeValue(parts[4], type), Integer.valueOf(parts[3]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    private static String encodeValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        return value instanceof Date ? String.valueOf(((Date) value).getTime()) : value.toString();
+    }
+
+    private static Object decodeValue(String text, Class<?> type) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        if (type == Integer.class) {
+            return Integer.valueOf(text);
+        }
+        if (type == Double.class) {
+            return Double.valueOf(text);
+        }
+        return new Date(Long.parseLong(text));
+    }
+}
@@ -0,0 +1,190 @@
+package com.vaadin.application.repository;
+
+import com.vaadin.application.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Filter text of the product grid parsed into free text and range predicates.
+ * Range tokens look like price:10..50, rating:4.. or released:2021-01-01..2021-12-31;
+ * a single value without ".." matches that value (a whole day for released).
+ * Everything else is free text, matched by ProductService as a substring of any field in the search index
+ * (range tokens checked on the catalog) and by toSpecification as a prefix of product name or product code.
+ *
+ * @author tailam
+ */
+public class ProductFilter {
+
+    private static final String RANGE = "..";
+    // Release day of a product without release date, see matchesRanges
+    public static final int NO_RELEASE_DAY = Integer.MIN_VALUE;
+
+    private String text = "";
+    private final List<Specification<Product>> ranges = new ArrayList<>();
+
+    // Bounds of the range tokens, inclusive, for in-memory matching. Tokens on the same field narrow each other.
+    private boolean priceRange;
+    private float minPrice = Float.NEGATIVE_INFINITY;
+    private float maxPrice = Float.POSITIVE_INFINITY;
+    private boolean ratingRange;
+    private float minRating = Float.NEGATIVE_INFINITY;
+    private float maxRating = Float.POSITIVE_INFINITY;
+    private boolean releaseRange;
+    private long fromDay = Long.MIN_VALUE;
+    private long toDay = Long.MAX_VALUE;
+
+    private ProductFilter() {
+    }
+
+    /**
+     * Parse filter text, unparsable range tokens are kept as free text
+     *
+     * @return productFilter
+     */
+    public static ProductFilter parse(String filter) {
+        ProductFilter productFilter = new ProductFilter();
+        StringBuilder text = new StringBuilder();
+        if (filter != null) {
+            for (String token : filter.trim().split("\\s+")) {
+                Specification<Product> range = productFilter.parseRange(token);
+                if (range != null) {
+                    productFilter.ranges.add(range);
+                } else if (!token.isEmpty()) {
+                    text.append(text.length() == 0 ? "" : " ").append(token);
+                }
+            }
+        }
+        productFilter.text = text.toString();
+        return productFilter;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public boolean isEmpty() {
+        return text.isEmpty() && ranges.isEmpty();
+    }
+
+    public boolean hasText() {
+        return !text.isEmpty();
+    }
+
+    public boolean hasRanges() {
+        return !ranges.isEmpty();
+    }
+
+    public boolean isRangeOnly() {
+        return text.isEmpty() && !ranges.isEmpty();
+    }
+
+    /**
+     * Whether column values of a product are within every range token, free text is not checked.
+     * Missing values are NaN for price and rating and NO_RELEASE_DAY for the release epoch day,
+     * like the SQL predicates they never match a range on their field.
+     *
+     * @return matches
+     */
+    public boolean matchesRanges(float price, float starRating, int releaseEpochDay) {
+        if (priceRange && !(price >= minPrice && price <= maxPrice)) {
+            return false;
+        }
+        if (ratingRange && !(starRating >= minRating && starRating <= maxRating)) {
+            return false;
+        }
+        return !releaseRange || releaseEpochDay != NO_RELEASE_DAY
+                && releaseEpochDay >= fromDay && releaseEpochDay <= toDay;
+    }
+
+    /**
+     * Whether the product is within every range token, free text is not checked
+     *
+     * @return matches
+     */
+    public boolean matchesRanges(Product product) {
+        Date releaseDate = product.getReleaseDate();
+        return matchesRanges(product.getPrice() == null ? Float.NaN : product.getPrice(),
+                product.getStarRating() == null ? Float.NaN : product.getStarRating(),
+                releaseDate == null ? NO_RELEASE_DAY : (int) LocalDate.ofInstant(
+                        Instant.ofEpochMilli(releaseDate.getTime()), ZoneId.systemDefault()).toEpochDay());
+    }
+
+    /**
+     * All predicates combined with AND
+     *
+     * @return specification
+     */
+    public Specification<Product> toSpecification() {
+        Specification<Product> specification = Specification.where(null);
+        if (!text.isEmpty()) {
+            specification = specification.and(ProductSpecifications.nameOrCodeStartsWith(text));
+        }
+        for (Specification<Product> range : ranges) {
+            specification = specification.and(range);
+        }
+        return specification;
+    }
+
+    private Specification<Product> parseRange(String token) {
+        int colon = token.indexOf(':');
+        if (colon <= 0) {
+            return null;
+        }
+        String field = token.substring(0, colon).toLowerCase();
+        String value = token.substring(colon + 1);
+        String low = value;
+        String high = value;
+        boolean range = value.contains(RANGE);
+        if (range) {
+            low = value.substring(0, value.indexOf(RANGE));
+            high = value.substring(value.indexOf(RANGE) + RANGE.length());
+        }
+        if (low.isEmpty() && high.isEmpty()) {
+            return null;
+        }
+        try {
+            switch (field) {
+                case "price":
+                    Float minPriceBound = toFloat(low);
+                    Float maxPriceBound = toFloat(high);
+                    priceRange = true;
+                    minPrice = Math.max(minPrice, minPriceBound == null ? Float.NEGATIVE_INFINITY : minPriceBound);
+                    maxPrice = Math.min(maxPrice, maxPriceBound == null ? Float.POSITIVE_INFINITY : maxPriceBound);
+                    return ProductSpecifications.priceBetween(minPriceBound, maxPriceBound);
+                case "rating":
+                    Float minRatingBound = toFloat(low);
+                    Float maxRatingBound = toFloat(high);
+                    ratingRange = true;
+                    minRating = Math.max(minRating, minRatingBound == null ? Float.NEGATIVE_INFINITY : minRatingBound);
+                    maxRating = Math.min(maxRating, maxRatingBound == null ? Float.POSITIVE_INFINITY : maxRatingBound);
+                    return ProductSpecifications.starRatingBetween(minRatingBound, maxRatingBound);
+                case "released":
+                    LocalDate from = low.isEmpty() ? null : LocalDate.parse(low);
+                    LocalDate to = high.isEmpty() ? null : LocalDate.parse(high);
+                    releaseRange = true;
+                    fromDay = Math.max(fromDay, from == null ? Long.MIN_VALUE : from.toEpochDay());
+                    toDay = Math.min(toDay, to == null ? Long.MAX_VALUE : to.toEpochDay());
+                    return ProductSpecifications.releasedBetween(toDate(from), toDate(to == null ? null : to.plusDays(1)));
+                default:
+                    return null;
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Float toFloat(String value) {
+        return value.isEmpty() ? null : Float.valueOf(value);
+    }
+
+    private static Date toDate(LocalDate localDate) {
+        return localDate == null ? null : Date.from(localDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -1,14 +1,116 @@
 package com.vaadin.application.repository;
 
 import com.vaadin.application.model.Product;
+import com.vaadin.application.model.ProductRow;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.hibernate.annotations.QueryHints.FETCH_SIZE;
+import static org.hibernate.annotations.QueryHints.READ_ONLY;
+
 /**
  * Product Repository
  *
  * @author tailam
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer > {
+public interface ProductRepository extends JpaRepository<Product, Integer >,
+        JpaSpecificationExecutor<Product>, ProductRepositoryCustom {
+
+    String ROW_PROJECTION = "select new com.vaadin.application.model.ProductRow(p.productId, p.productName,"
+            + " p.productCode, p.releaseDate, p.price, p.starRating, p.imageUrl) from Product p";
+
+    /**
+     * One page of grid rows, sort orders of the pageable become the ORDER BY
+     *
+     * @return productRows
+     */
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    @Query(ROW_PROJECTION)
+    List<ProductRow> findRowPage(Pageable pageable);
+
+    /**
+     * Keyset page of grid rows after the given id in id order
+     *
+     * @return productRows
+     */
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    @Query(ROW_PROJECTION + " where p.productId > :afterId order by p.productId")
+    List<ProductRow> findRowPageAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Grid rows of the given ids, in no particular order
+     *
+     * @return productRows
+     */
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    @Query(ROW_PROJECTION + " where p.productId in :productIds")
+    List<ProductRow> findRowsByIds(@Param("productIds") Collection<Integer> productIds);
+
+    /**
+     * Keyset page: products after the given id in id order
+     *
+     * @return products
+     */
+    @Query("select p from Product p where p.productId > :afterId order by p.productId")
+    List<Product> findPageAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * All products in id order, read from a cursor 1000 rows per round trip.
+     * Must be consumed inside a transaction and closed.
+     *
+     * @return products
+     */
+    @RestResource(exported = false)
+    @QueryHints({@QueryHint(name = FETCH_SIZE, value = "1000"), @QueryHint(name = READ_ONLY, value = "true")})
+    @Query("select p from Product p order by p.productId")
+    Stream<Product> streamAll();
+
+    /**
+     * Product count per price bucket of 100, bucket number is floor(price / 100)
+     *
+     * @return rows of bucket and count
+     */
+    @Query("select floor(p.price / 100), count(p) from Product p where p.price is not null"
+            + " group by floor(p.price / 100)")
+    List<Object[]> countByPriceBucket();
+
+    /**
+     * Product count per half star, bucket number is floor(starRating * 2)
+     *
+     * @return rows of bucket and count
+     */
+    @Query("select floor(p.starRating * 2), count(p) from Product p where p.starRating is not null"
+            + " group by floor(p.starRating * 2)")
+    List<Object[]> countByRatingBucket();
+
+    /**
+     * Product count per release date, the caller takes the year of each date in its own time zone
+     *
+     * @return rows of release date and count
+     */
+    @Query("select p.releaseDate, count(p) from Product p where p.releaseDate is not null"
+            + " group by p.releaseDate")
+    List<Object[]> countByReleaseDate();
+
+    /**
+     * Change marker of the product table: row count, highest id and sum of row versions.
+     * Every insert, delete and versioned update moves at least one of them.
+     *
+     * @return one row of count, max id and version sum
+     */
+    @Query("select count(p), max(p.productId), sum(coalesce(p.version, 0)) from Product p")
+    List<Object[]> findChangeMarker();
 }
@@ -0,0 +1,62 @@
+package com.vaadin.application.repository;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.model.ProductRow;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.rest.core.annotation.RestResource;
+
+import javax.persistence.Tuple;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Product Repository queries implemented with the criteria API
+ *
+ * @author tailam
+ */
+public interface ProductRepositoryCustom {
+
+    // Tuple alias of the sort value of a keyset page row, in the type the cursor holds
+    String CURSOR_VALUE = "cursorValue";
+
+    /**
+     * One page of grid rows matching the specification, without the count query of findAll(spec, pageable)
+     *
+     * @return productRows
+     */
+    @RestResource(exported = false)
+    List<ProductRow> findRowSlice(Specification<Product> specification, Pageable pageable);
+
+    /**
+     * Number of products matching the specification, from the query cache while the table is unchanged.
+     * Replaces JpaSpecificationExecutor.count, whose count query takes no query hints.
+     *
+     * @return count
+     */
+    long count(Specification<Product> specification);
+
+    /**
+     * Keyset page in sort property order with product id as tie-breaker, products without a sort
+     * value come last and are read by a second query in id order. Pages are not query cached.
+     * Only the given fields are selected, each tuple element is aliased by its field,
+     * a sort value of another type than the cursor holds is also selected as CURSOR_VALUE.
+     *
+     * @return tuples
+     */
+    @RestResource(exported = false)
+    List<Tuple> findKeysetPage(String sortProperty, Sort.Direction direction, ProductCursor after,
+                               Collection<String> fields, int limit);
+
+    /**
+     * Versioned update of the given fields on the managed product, found through the second-level cache.
+     * Only changed columns are written and the version is incremented, the cached entity is updated rather than
+     * the region evicted as by a bulk update. A product without a version counts as version 0.
+     *
+     * @return updated row count, 0 when the product was changed or deleted since it was read
+     * @throws org.springframework.orm.ObjectOptimisticLockingFailureException when it was changed while updating
+     */
+    @RestResource(exported = false)
+    int updateFields(Product product, Collection<String> fields);
+}
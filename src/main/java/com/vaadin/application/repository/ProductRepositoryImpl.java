@@ -0,0 +1,217 @@
+package com.vaadin.application.repository;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.model.ProductRow;
+import org.hibernate.Session;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+
+/**
+ * Criteria API implementation of ProductRepositoryCustom
+ *
+ * @author tailam
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductRow> findRowSlice(Specification<Product> specification, Pageable pageable) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductRow> query = builder.createQuery(ProductRow.class);
+        Root<Product> root = query.from(Product.class);
+        Predicate predicate = specification == null ? null : specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(builder.construct(ProductRow.class, root.get("productId"), root.get("productName"),
+                root.get("productCode"), root.get("releaseDate"), root.get("price"), root.get("starRating"),
+                root.get("imageUrl")));
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, builder));
+        TypedQuery<ProductRow> typedQuery = entityManager.createQuery(query);
+        typedQuery.setFirstResult((int) pageable.getOffset());
+        typedQuery.setMaxResults(pageable.getPageSize());
+        typedQuery.setHint(CACHEABLE, true);
+        return typedQuery.getResultList();
+    }
+
+    @Override
+    public long count(Specification<Product> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = builder.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+        Predicate predicate = specification == null ? null : specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(builder.count(root));
+        return entityManager.createQuery(query).setHint(CACHEABLE, true).getSingleResult();
+    }
+
+    @Override
+    public List<Tuple> findKeysetPage(String sortProperty, Sort.Direction direction, ProductCursor after,
+                                      Collection<String> fields, int limit) {
+        boolean ascending = direction.isAscending();
+        if ("productId".equals(sortProperty)) {
+            return findKeysetRows(sortProperty, ascending, after, false, fields, limit);
+        }
+        // Products with a sort value by a range on the sort column, then those without one by id
+        // (nulls sort last, see hibernate.order_by.default_null_ordering)
+        List<Tuple> rows = new ArrayList<>();
+        if (after == null || after.getValue() != null) {
+            rows.addAll(findKeysetRows(sortProperty, ascending, after, false, fields, limit));
+        }
+        if (rows.size() < limit) {
+            ProductCursor nullAfter = after != null && after.getValue() == null ? after : null;
+            rows.addAll(findKeysetRows(sortProperty, ascending, nullAfter, true, fields, limit - rows.size()));
+        }
+        return rows;
+    }
+
+    /**
+     * One phase of a keyset page: rows with a sort value in sort value and id order, or rows without one in id order
+     *
+     * @return tuples
+     */
+    private List<Tuple> findKeysetRows(String sortProperty, boolean ascending, ProductCursor after,
+                                       boolean withoutValue, Collection<String> fields, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = builder.createTupleQuery();
+        Root<Product> root = query.from(Product.class);
+
+        // The cursor of the next page needs the id and sort value even when they were not requested
+        Set<String> columns = new LinkedHashSet<>(fields);
+        columns.add("productId");
+        columns.add(sortProperty);
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String column : columns) {
+            selections.add(root.get(column).alias(column));
+        }
+        Class<?> cursorType = ProductCursor.SORT_PROPERTIES.get(sortProperty);
+        if (root.get(sortProperty).getJavaType() != cursorType) {
+            selections.add(root.get(sortProperty).as(cursorType).alias(CURSOR_VALUE));
+        }
+        query.multiselect(selections);
+
+        Expression<Comparable<Object>> key = root.get(sortProperty);
+        Expression<Comparable<Object>> productId = root.get("productId");
+        List<Predicate> predicates = new ArrayList<>();
+        List<Order> orders = new ArrayList<>();
+        if ("productId".equals(sortProperty)) {
+            if (after != null) {
+                predicates.add(laterId(builder, productId, ascending, after));
+            }
+        } else if (withoutValue) {
+            predicates.add(builder.isNull(key));
+            if (after != null) {
+                predicates.add(laterId(builder, productId, ascending, after));
+            }
+        } else {
+            predicates.add(after == null ? builder.isNotNull(key)
+                    : laterValue(builder, key, productId, ascending, after));
+            orders.add(ascending ? builder.asc(key) : builder.desc(key));
+        }
+        orders.add(ascending ? builder.asc(productId) : builder.desc(productId));
+        query.where(predicates.toArray(new Predicate[0]));
+        query.orderBy(orders);
+
+        // Not cacheable: a page of a full catalog walk is read once and would only push grid queries out
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Predicate laterId(CriteriaBuilder builder, Expression<Comparable<Object>> productId,
+                                     boolean ascending, ProductCursor after) {
+        Comparable<Object> lastId = (Comparable<Object>) (Comparable<?>) after.getProductId();
+        return ascending ? builder.greaterThan(productId, lastId) : builder.lessThan(productId, lastId);
+    }
+
+    /**
+     * Rows with a sort value after the cursor: a range from its sort value on the bare column, so the sort index
+     * is scanned from there, in which rows with the same value need a later id
+     *
+     * @return predicate
+     */
+    @SuppressWarnings("unchecked")
+    private static Predicate laterValue(CriteriaBuilder builder, Expression<Comparable<Object>> key,
+                                        Expression<Comparable<Object>> productId, boolean ascending,
+                                        ProductCursor after) {
+        // Bound in the cursor type, a cast of the column would not match the index
+        Expression<Comparable<Object>> lastValue = (Expression<Comparable<Object>>) (Expression<?>)
+                builder.literal(after.getValue());
+        Predicate from = ascending ? builder.greaterThanOrEqualTo(key, lastValue)
+                : builder.lessThanOrEqualTo(key, lastValue);
+        Predicate beyond = ascending ? builder.greaterThan(key, lastValue) : builder.lessThan(key, lastValue);
+        return builder.and(from, builder.or(beyond, laterId(builder, productId, ascending, after)));
+    }
+
+    @Override
+    @Transactional
+    public int updateFields(Product product, Collection<String> fields) {
+        // Usually a hit in the second-level cache, the version is checked again by the update
+        Product managed = entityManager.find(Product.class, product.getProductId());
+        if (managed != null && managed.getVersion() == null) {
+            managed = backfillVersion(managed);
+        }
+        int version = product.getVersion() == null ? 0 : product.getVersion();
+        if (managed == null || managed.getVersion() != version) {
+            return 0;
+        }
+        BeanWrapper values = new BeanWrapperImpl(product);
+        BeanWrapper target = new BeanWrapperImpl(managed);
+        for (String field : fields) {
+            target.setPropertyValue(field, values.getPropertyValue(field));
+        }
+        entityManager.flush();
+        // Unchanged values write nothing, the version is still incremented at commit as the caller expects
+        if (managed.getVersion() == version) {
+            entityManager.lock(managed, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+        }
+        return 1;
+    }
+
+    /**
+     * Give a row from before the version column (added without a default by ddl-auto) the version 0 it counts as.
+     * Written over JDBC, a bulk update would evict the whole Product region.
+     *
+     * @return product reloaded with its version
+     */
+    private Product backfillVersion(Product managed) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE product SET version = 0 WHERE product_id = ? AND version IS NULL")) {
+                statement.setInt(1, managed.getProductId());
+                statement.executeUpdate();
+            }
+        });
+        entityManager.refresh(managed);
+        return managed;
+    }
+}
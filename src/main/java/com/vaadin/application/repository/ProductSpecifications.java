@@ -0,0 +1,95 @@
+package com.vaadin.application.repository;
+
+import com.vaadin.application.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Date;
+
+/**
+ * Criteria predicates for product search, written against indexed columns
+ *
+ * @author tailam
+ */
+public final class ProductSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * Product name or product code starts with the text, case insensitive.
+     * Served by the lower(product_name) and lower(product_code) indexes.
+     *
+     * @return specification
+     */
+    public static Specification<Product> nameOrCodeStartsWith(String text) {
+        String pattern = escapeLike(text.toLowerCase()) + "%";
+        return (root, query, builder) -> builder.or(
+                builder.like(builder.lower(root.get("productName")), pattern, ESCAPE),
+                builder.like(builder.lower(root.get("productCode")), pattern, ESCAPE));
+    }
+
+    /**
+     * Price within the range, either bound may be null
+     *
+     * @return specification
+     */
+    public static Specification<Product> priceBetween(Float min, Float max) {
+        return (root, query, builder) -> {
+            if (min != null && max != null) {
+                return builder.between(root.get("price"), min, max);
+            }
+            return min != null
+                    ? builder.greaterThanOrEqualTo(root.get("price"), min)
+                    : builder.lessThanOrEqualTo(root.get("price"), max);
+        };
+    }
+
+    /**
+     * Star rating within the range, either bound may be null
+     *
+     * @return specification
+     */
+    public static Specification<Product> starRatingBetween(Float min, Float max) {
+        return (root, query, builder) -> {
+            if (min != null && max != null) {
+                return builder.between(root.get("starRating"), min, max);
+            }
+            return min != null
+                    ? builder.greaterThanOrEqualTo(root.get("starRating"), min)
+                    : builder.lessThanOrEqualTo(root.get("starRating"), max);
+        };
+    }
+
+    /**
+     * Release date within the range (inclusive from, exclusive to), either bound may be null
+     *
+     * @return specification
+     */
+    public static Specification<Product> releasedBetween(Date from, Date to) {
+        return (root, query, builder) -> {
+            if (from != null && to != null) {
+                return builder.and(
+                        builder.greaterThanOrEqualTo(root.get("releaseDate"), from),
+                        builder.lessThan(root.get("releaseDate"), to));
+            }
+            return from != null
+                    ? builder.greaterThanOrEqualTo(root.get("releaseDate"), from)
+                    : builder.lessThan(root.get("releaseDate"), to);
+        };
+    }
+
+    /**
+     * Product id after the given id, used for keyset paging
+     *
+     * @return specification
+     */
+    public static Specification<Product> productIdGreaterThan(Integer productId) {
+        return (root, query, builder) -> builder.greaterThan(root.get("productId"), productId);
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
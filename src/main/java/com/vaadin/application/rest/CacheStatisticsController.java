@@ -0,0 +1,30 @@
+package com.vaadin.application.rest;
+
+import com.vaadin.application.cache.CacheStatistics;
+import com.vaadin.application.cache.ProductCacheManager;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collection;
+
+/**
+ * Cache hit and miss ratios
+ *
+ * @author tailam
+ */
+@RestController
+@RequestMapping("/api/cache")
+public class CacheStatisticsController {
+
+    private final ProductCacheManager productCacheManager;
+
+    public CacheStatisticsController(ProductCacheManager productCacheManager) {
+        this.productCacheManager = productCacheManager;
+    }
+
+    @GetMapping("/statistics")
+    public Collection<CacheStatistics> getStatistics() {
+        return productCacheManager.getStatistics();
+    }
+}
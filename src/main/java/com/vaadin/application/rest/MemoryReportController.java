@@ -0,0 +1,38 @@
+package com.vaadin.application.rest;
+
+import com.vaadin.application.cache.CatalogSnapshot;
+import com.vaadin.application.cache.ProductCacheManager;
+import com.vaadin.application.metrics.SessionMemoryReport;
+import com.vaadin.application.metrics.VaadinSessionMetrics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Per session memory report
+ *
+ * @author tailam
+ */
+@RestController
+@RequestMapping("/api/memory")
+public class MemoryReportController {
+
+    private final ProductCacheManager productCacheManager;
+    private final VaadinSessionMetrics vaadinSessionMetrics;
+
+    public MemoryReportController(ProductCacheManager productCacheManager,
+                                  VaadinSessionMetrics vaadinSessionMetrics) {
+        this.productCacheManager = productCacheManager;
+        this.vaadinSessionMetrics = vaadinSessionMetrics;
+    }
+
+    @GetMapping("/sessions")
+    public SessionMemoryReport getSessionReport() {
+        CatalogSnapshot catalog = productCacheManager.getCatalog();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return new SessionMemoryReport(vaadinSessionMetrics.getSessions(), vaadinSessionMetrics.getUis(), heapUsed,
+                catalog.getVersion(), catalog.size(), catalog.getEstimatedBytes());
+    }
+}
@@ -0,0 +1,37 @@
+package com.vaadin.application.rest;
+
+import com.vaadin.application.service.ProductFileFormat;
+import com.vaadin.application.service.ProductImportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Bulk product import, the request body is streamed straight into the importer
+ *
+ * @author tailam
+ */
+@RestController
+@RequestMapping("/api/import")
+public class ProductImportController {
+
+    private final ProductImportService productImportService;
+
+    public ProductImportController(ProductImportService productImportService) {
+        this.productImportService = productImportService;
+    }
+
+    @PostMapping(value = "/products",
+            consumes = {ProductFileFormat.TEXT_CSV, ProductFileFormat.APPLICATION_NDJSON})
+    public ProductImportService.ImportReport importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                            HttpServletRequest request) throws IOException {
+        return productImportService.importProducts(request.getInputStream(),
+                ProductFileFormat.fromMediaType(MediaType.parseMediaType(contentType)));
+    }
+}
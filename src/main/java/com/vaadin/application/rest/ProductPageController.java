@@ -0,0 +1,53 @@
+package com.vaadin.application.rest;
+
+import com.vaadin.application.service.ProductPage;
+import com.vaadin.application.service.ProductService;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Keyset paginated product listing for integration jobs, pages cost the same at any depth
+ *
+ * @author tailam
+ */
+@RestController
+@RequestMapping("/api/products")
+public class ProductPageController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final ProductService productService;
+
+    public ProductPageController(ProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Products ordered by sort (productId, price, starRating or releaseDate) then productId.
+     * Pass the returned next token as cursor to continue, and fields to select only some columns.
+     *
+     * @return productPage
+     */
+    @GetMapping
+    public ProductPage getProducts(@RequestParam(defaultValue = "productId") String sort,
+                                   @RequestParam(defaultValue = "asc") String direction,
+                                   @RequestParam(required = false) String cursor,
+                                   @RequestParam(required = false) List<String> fields,
+                                   @RequestParam(defaultValue = "100") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_LIMIT);
+        }
+        try {
+            return productService.findProductPage(sort, Sort.Direction.fromString(direction), cursor, fields, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.vaadin.application.rest;
+
+import com.vaadin.application.service.ProductThumbnailService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product thumbnails, sent straight from the disk cache without copying through the heap
+ *
+ * @author tailam
+ */
+@RestController
+public class ProductThumbnailController {
+
+    // Tomcat hands the file to the connector, which sends it with FileChannel.transferTo
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic()
+            .getHeaderValue() + ", immutable";
+
+    private final ProductThumbnailService productThumbnailService;
+
+    public ProductThumbnailController(ProductThumbnailService productThumbnailService) {
+        this.productThumbnailService = productThumbnailService;
+    }
+
+    @GetMapping(ProductThumbnailService.THUMBNAIL_PATH + "{name:.+}")
+    public void getThumbnail(@PathVariable String name, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        ProductThumbnailService.Thumbnail thumbnail = productThumbnailService.getThumbnail(name);
+        if (thumbnail == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No thumbnail for " + name);
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (new ServletWebRequest(request, response).checkNotModified(thumbnail.getETag())) {
+            return;
+        }
+        response.setContentType(MediaType.IMAGE_PNG_VALUE);
+        response.setContentLengthLong(thumbnail.getLength());
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, thumbnail.getPath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, thumbnail.getLength());
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(thumbnail.getPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < thumbnail.getLength()) {
+                position += channel.transferTo(position, thumbnail.getLength() - position, target);
+            }
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package com.vaadin.application.search;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.repository.ProductRepository;
+import com.vaadin.application.service.ProductChangeListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index answering substring queries over product fields
+ *
+ * @author tailam
+ */
+@Component
+public class ProductSearchIndex implements ProductChangeListener {
+
+    private static final Logger logger = LogManager.getLogger(ProductSearchIndex.class);
+    private static final int BOOTSTRAP_PAGE_SIZE = 1000;
+    private static final char FIELD_SEPARATOR = '\n';
+    private static final DateTimeFormatter DISPLAY_DATE = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // productId -> normalized searchable text, fields separated by FIELD_SEPARATOR
+    private final Map<Integer, String> documents = new HashMap<>();
+    // packed trigram -> ascending ids of products containing it
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private volatile boolean ready;
+    private long version;
+    // Products changed while a rebuild runs, its pages are older than these changes and skip them
+    private Set<Integer> changedDuringRebuild;
+    private final Object rebuildLock = new Object();
+
+    // Last answered query, the grid asks for count and page with the same filter
+    private String lastQuery;
+    private long lastVersion = -1;
+    private int[] lastResult;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Build the index once the application is up, unless it was built from the restored catalog
+     *
+     * @author tailam
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Build the index from the database page by page. Searches fall back to the database meanwhile.
+     * Changes published during the rebuild are indexed as they come, a page read before such a change
+     * leaves the product alone rather than index its older state or bring it back after a delete.
+     *
+     * @author tailam
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            boolean complete = false;
+            lock.writeLock().lock();
+            try {
+                ready = false;
+                clear();
+                changedDuringRebuild = new HashSet<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                Integer afterId = 0;
+                List<Product> page;
+                do {
+                    page = productRepository.findPageAfter(afterId, PageRequest.of(0, BOOTSTRAP_PAGE_SIZE));
+                    load(page, changedDuringRebuild);
+                    if (!page.isEmpty()) {
+                        afterId = page.get(page.size() - 1).getProductId();
+                    }
+                } while (page.size() == BOOTSTRAP_PAGE_SIZE);
+                complete = true;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    changedDuringRebuild = null;
+                    postings.values().forEach(PostingList::trim);
+                    ready = complete;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+            logger.info("Indexed {} products in {} ms", documents.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void onCatalogRestored(List<Product> products) {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            lock.writeLock().lock();
+            try {
+                clear();
+                load(products, Collections.emptySet());
+                postings.values().forEach(PostingList::trim);
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Indexed {} restored products in {} ms", documents.size(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    // Under the write lock
+    private void clear() {
+        documents.clear();
+        postings.clear();
+        version++;
+    }
+
+    /**
+     * Index loaded products in one hold of the write lock, except those changed since they were loaded
+     *
+     * @author tailam
+     */
+    private void load(List<Product> products, Set<Integer> changed) {
+        Map<Integer, String> loaded = new HashMap<>();
+        for (Product product : products) {
+            if (product != null && product.getProductId() != null) {
+                loaded.put(product.getProductId(), toDocument(product));
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            loaded.forEach((productId, document) -> {
+                if (!changed.contains(productId)) {
+                    put(productId, document);
+                }
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add or re-index a product
+     *
+     * @author tailam
+     */
+    public void index(Product product) {
+        if (product == null || product.getProductId() == null) {
+            return;
+        }
+        String document = toDocument(product);
+        lock.writeLock().lock();
+        try {
+            put(product.getProductId(), document);
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(product.getProductId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Under the write lock, only the trigrams that changed touch their posting lists
+    private void put(Integer productId, String document) {
+        String previous = documents.put(productId, document);
+        Set<Long> added = trigrams(document);
+        if (previous != null) {
+            Set<Long> kept = trigrams(previous);
+            Set<Long> removed = new HashSet<>(kept);
+            removed.removeAll(added);
+            added.removeAll(kept);
+            removePostings(productId, removed);
+        }
+        for (long trigram : added) {
+            postings.computeIfAbsent(trigram, key -> new PostingList()).add(productId);
+        }
+        version++;
+    }
+
+    /**
+     * Remove a product from the index
+     *
+     * @author tailam
+     */
+    public void remove(Integer productId) {
+        lock.writeLock().lock();
+        try {
+            String previous = documents.remove(productId);
+            if (previous != null) {
+                removePostings(productId, trigrams(previous));
+                version++;
+            }
+            if (changedDuringRebuild != null) {
+                changedDuringRebuild.add(productId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onProductSaved(Product previous, Product saved) {
+        index(saved);
+    }
+
+    @Override
+    public void onProductDeleted(Product deleted) {
+        remove(deleted.getProductId());
+    }
+
+    /**
+     * Ids of products containing the query in any field, ascending
+     *
+     * @return productIds
+     */
+    public int[] search(String query) {
+        String needle = query.trim().toLowerCase();
+        lock.readLock().lock();
+        try {
+            synchronized (this) {
+                if (version == lastVersion && needle.equals(lastQuery)) {
+                    return lastResult;
+                }
+            }
+            int[] result = needle.length() < 3 ? scan(needle) : intersect(needle);
+            synchronized (this) {
+                lastQuery = needle;
+                lastVersion = version;
+                lastResult = result;
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] scan(String needle) {
+        List<Integer> matches = new ArrayList<>();
+        documents.forEach((productId, document) -> {
+            if (document.contains(needle)) {
+                matches.add(productId);
+            }
+        });
+        return toSortedArray(matches);
+    }
+
+    private int[] intersect(String needle) {
+        List<PostingList> lists = new ArrayList<>();
+        for (long trigram : trigrams(needle)) {
+            PostingList posting = postings.get(trigram);
+            if (posting == null) {
+                return new int[0];
+            }
+            lists.add(posting);
+        }
+        // Shortest first, every merge can only shrink the candidates
+        lists.sort(Comparator.comparingInt(posting -> posting.size));
+        int[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retainAll(candidates, count);
+        }
+        int matches = 0;
+        for (int i = 0; i < count; i++) {
+            // Trigrams may appear in another order or field, confirm the substring
+            if (documents.get(candidates[i]).contains(needle)) {
+                candidates[matches++] = candidates[i];
+            }
+        }
+        return Arrays.copyOf(candidates, matches);
+    }
+
+    private void removePostings(Integer productId, Set<Long> trigrams) {
+        for (long trigram : trigrams) {
+            PostingList posting = postings.get(trigram);
+            if (posting != null && posting.remove(productId) && posting.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            char a = text.charAt(i);
+            char b = text.charAt(i + 1);
+            char c = text.charAt(i + 2);
+            if (a == FIELD_SEPARATOR || b == FIELD_SEPARATOR || c == FIELD_SEPARATOR) {
+                continue;
+            }
+            trigrams.add(((long) a << 32) | ((long) b << 16) | c);
+        }
+        return trigrams;
+    }
+
+    private static String toDocument(Product product) {
+        StringBuilder document = new StringBuilder();
+        append(document, product.getProductName());
+        append(document, product.getProductCode());
+        append(document, product.getDescription());
+        append(document, product.getImageUrl());
+        if (product.getReleaseDate() != null) {
+            LocalDate releaseDate = LocalDate.ofInstant(Instant.ofEpochMilli(product.getReleaseDate().getTime()),
+                    ZoneId.systemDefault());
+            append(document, releaseDate.toString());
+            append(document, releaseDate.format(DISPLAY_DATE));
+        }
+        if (product.getPrice() != null) {
+            append(document, product.getPrice().toString());
+        }
+        if (product.getStarRating() != null) {
+            append(document, product.getStarRating().toString());
+        }
+        return document.toString();
+    }
+
+    private static void append(StringBuilder document, String field) {
+        if (field != null) {
+            document.append(field.toLowerCase()).append(FIELD_SEPARATOR);
+        }
+    }
+
+    private static int[] toSortedArray(List<Integer> productIds) {
+        int[] result = new int[productIds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = productIds.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Ascending product ids in a plain int array, 4 bytes an entry instead of a boxed set entry.
+     * Pages load in id order and append, an edit shifts the tail of the lists whose trigrams it changed.
+     *
+     * @author tailam
+     */
+    private static final class PostingList {
+
+        private int[] ids = new int[2];
+        private int size;
+
+        private void add(int productId) {
+            if (size > 0 && ids[size - 1] >= productId) {
+                int index = Arrays.binarySearch(ids, 0, size, productId);
+                if (index >= 0) {
+                    return;
+                }
+                insert(-index - 1, productId);
+                return;
+            }
+            insert(size, productId);
+        }
+
+        private void insert(int index, int productId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = productId;
+            size++;
+        }
+
+        private boolean remove(int productId) {
+            int index = Arrays.binarySearch(ids, 0, size, productId);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Keep the first count candidates that are in this list, by a merge of the two ascending arrays
+         *
+         * @return number of candidates kept
+         */
+        private int retainAll(int[] candidates, int count) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < count && j < size; i++) {
+                while (j < size && ids[j] < candidates[i]) {
+                    j++;
+                }
+                if (j < size && ids[j] == candidates[i]) {
+                    candidates[kept++] = candidates[i];
+                }
+            }
+            return kept;
+        }
+
+        private void trim() {
+            if (ids.length > size) {
+                ids = Arrays.copyOf(ids, size);
+            }
+        }
+    }
+}
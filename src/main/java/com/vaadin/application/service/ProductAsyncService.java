@@ -0,0 +1,110 @@
+package com.vaadin.application.service;
+
+import com.vaadin.application.model.Product;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * ProductService calls for views, run on a bounded pool so request threads never wait on the database.
+ * Cancelling a returned future drops the call if it is still queued, a running call is left to finish and its result
+ * is dropped.
+ * A full queue fails the future with RejectedExecutionException instead of blocking the caller.
+ *
+ * @author tailam
+ */
+@Service
+public class ProductAsyncService {
+
+    private static final Logger logger = LogManager.getLogger(ProductAsyncService.class);
+    private final ProductService productService;
+    private final ThreadPoolExecutor executor;
+
+    public ProductAsyncService(ProductService productService,
+                               @Value("${product.async.pool-size:4}") int poolSize,
+                               @Value("${product.async.queue-capacity:200}") int queueCapacity) {
+        this.productService = productService;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "product-async-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public CompletableFuture<Long> count() {
+        return submit(productService::count);
+    }
+
+    public CompletableFuture<Map<String, Long>> getStats() {
+        return submit(productService::getStats);
+    }
+
+    public CompletableFuture<Map<String, Long>> getPriceStats() {
+        return submit(productService::getPriceStats);
+    }
+
+    public CompletableFuture<Map<String, Long>> getReleaseYearStats() {
+        return submit(productService::getReleaseYearStats);
+    }
+
+    public CompletableFuture<Product> findProduct(Integer productId) {
+        return submit(() -> productService.findProduct(productId));
+    }
+
+    /**
+     * Calls waiting for a pool thread
+     *
+     * @return queued
+     */
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                try {
+                    result.complete(call.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Product call rejected, {} calls queued", executor.getQueue().size());
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                // No interrupt: it would close the Ehcache disk store channel or break a JDBC call midway
+                task.cancel(false);
+            }
+        });
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package com.vaadin.application.service;
+
+import com.vaadin.application.model.Product;
+
+import java.util.List;
+
+/**
+ * Listener notified by ProductService after a product has been written
+ *
+ * @author tailam
+ */
+public interface ProductChangeListener {
+
+    /**
+     * Product created or updated, previous is null for a new product
+     *
+     * @author tailam
+     */
+    void onProductSaved(Product previous, Product saved);
+
+    /**
+     * Product deleted
+     *
+     * @author tailam
+     */
+    void onProductDeleted(Product deleted);
+
+    /**
+     * Chunk of new products committed by the bulk import
+     *
+     * @author tailam
+     */
+    default void onProductsImported(List<Product> imported) {
+        imported.forEach(product -> onProductSaved(null, product));
+    }
+
+    /**
+     * Catalog restored from the disk image at startup, before the database has been checked.
+     * Listeners deriving state from the catalog build it from these products instead of the database,
+     * differences found later by the background reconcile arrive as ordinary saves and deletes.
+     *
+     * @author tailam
+     */
+    default void onCatalogRestored(List<Product> products) {
+    }
+}
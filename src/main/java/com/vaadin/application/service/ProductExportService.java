@@ -0,0 +1,124 @@
+package com.vaadin.application.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.vaadin.application.model.Product;
+import com.vaadin.application.repository.ProductRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streaming export of the whole catalog as CSV or NDJSON in constant memory
+ *
+ * @author tailam
+ */
+@Service
+public class ProductExportService {
+
+    private static final Logger logger = LogManager.getLogger(ProductExportService.class);
+    // Rows written between persistence context clears
+    private static final int CHUNK_SIZE = 1000;
+    // Column order of the CSV export, also the field order of NDJSON, readable by the bulk import
+    private static final String[] COLUMNS = {"productId", "productName", "productCode", "description",
+            "releaseDate", "price", "starRating", "imageUrl"};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper csvMapper = new CsvMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private final ObjectMapper objectMapper = new ObjectMapper().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    public ProductExportService(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Write every product in id order to the output stream, the stream is not closed
+     *
+     * @return number of products written
+     */
+    public long exportProducts(OutputStream outputStream, ProductFileFormat format) {
+        long start = System.currentTimeMillis();
+        Long exported = readOnlyTransaction.execute(status -> {
+            // Read once, exported entities would churn the second-level cache
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            try (Stream<Product> products = productRepository.streamAll();
+                 SequenceWriter writer = open(outputStream, format)) {
+                long count = 0;
+                Iterator<Product> iterator = products.iterator();
+                while (iterator.hasNext()) {
+                    write(writer, iterator.next(), format);
+                    if (++count % CHUNK_SIZE == 0) {
+                        // Drop written entities so the persistence context does not grow with the catalog
+                        entityManager.clear();
+                        writer.flush();
+                    }
+                }
+                return count;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        logger.info("Exported {} products as {} in {} ms", exported, format,
+                System.currentTimeMillis() - start);
+        return exported == null ? 0 : exported;
+    }
+
+    private SequenceWriter open(OutputStream outputStream, ProductFileFormat format) throws IOException {
+        if (format == ProductFileFormat.CSV) {
+            CsvSchema.Builder schema = CsvSchema.builder().setUseHeader(true);
+            for (String column : COLUMNS) {
+                schema.addColumn(column);
+            }
+            return csvMapper.writer(schema.build()).writeValues(outputStream);
+        }
+        return objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream);
+    }
+
+    private void write(SequenceWriter writer, Product product, ProductFileFormat format) throws IOException {
+        Object[] values = {product.getProductId(), product.getProductName(), product.getProductCode(),
+                product.getDescription(), formatDate(product), product.getPrice(), product.getStarRating(),
+                product.getImageUrl()};
+        if (format == ProductFileFormat.CSV) {
+            writer.write(values);
+            return;
+        }
+        ObjectNode node = objectMapper.createObjectNode();
+        for (int i = 0; i < COLUMNS.length; i++) {
+            node.putPOJO(COLUMNS[i], values[i]);
+        }
+        writer.write(node);
+    }
+
+    private static String formatDate(Product product) {
+        if (product.getReleaseDate() == null) {
+            return null;
+        }
+        return LocalDate.ofInstant(Instant.ofEpochMilli(product.getReleaseDate().getTime()), ZoneId.systemDefault())
+                .toString();
+    }
+}
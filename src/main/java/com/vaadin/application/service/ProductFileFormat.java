@@ -0,0 +1,42 @@
+package com.vaadin.application.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * File formats of the bulk product import and export
+ *
+ * @author tailam
+ */
+public enum ProductFileFormat {
+
+    CSV(ProductFileFormat.TEXT_CSV, "csv"),
+    NDJSON(ProductFileFormat.APPLICATION_NDJSON, "ndjson");
+
+    public static final String TEXT_CSV = "text/csv";
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ProductFileFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Format of a request content type, NDJSON unless the type is CSV
+     *
+     * @return format
+     */
+    public static ProductFileFormat fromMediaType(MediaType mediaType) {
+        return CSV.mediaType.isCompatibleWith(mediaType) ? CSV : NDJSON;
+    }
+}
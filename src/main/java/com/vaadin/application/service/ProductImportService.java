@@ -0,0 +1,199 @@
+package com.vaadin.application.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.vaadin.application.cache.ProductCacheManager;
+import com.vaadin.application.model.Product;
+import com.vaadin.application.model.ProductValidator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streaming bulk import of products from CSV or NDJSON, inserted in JDBC batches
+ *
+ * @author tailam
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LogManager.getLogger(ProductImportService.class);
+    // Rows committed per transaction, listeners are notified once per chunk
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCacheManager productCacheManager;
+    private final List<ProductChangeListener> productChangeListeners;
+    private final ObjectReader csvReader;
+    private final ObjectReader jsonReader;
+    private final int batchSize;
+
+    public ProductImportService(TransactionTemplate transactionTemplate, ProductCacheManager productCacheManager,
+                                List<ProductChangeListener> productChangeListeners,
+                                @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.transactionTemplate = transactionTemplate;
+        this.productCacheManager = productCacheManager;
+        this.productChangeListeners = productChangeListeners;
+        this.batchSize = batchSize;
+        this.csvReader = new CsvMapper().readerFor(JsonNode.class).with(CsvSchema.emptySchema().withHeader());
+        this.jsonReader = new ObjectMapper().readerFor(JsonNode.class);
+    }
+
+    /**
+     * Read, validate and insert every row of the stream, invalid rows are skipped and reported.
+     * Chunks committed before a database or parse failure stay imported.
+     *
+     * @return report
+     */
+    public ImportReport importProducts(InputStream inputStream, ProductFileFormat format) throws IOException {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+        ObjectReader reader = format == ProductFileFormat.CSV ? csvReader : jsonReader;
+        try (MappingIterator<JsonNode> rows = reader.readValues(inputStream)) {
+            long row = 0;
+            while (rows.hasNextValue()) {
+                JsonNode node = rows.nextValue();
+                row++;
+                Product product;
+                try {
+                    product = toProduct(node);
+                } catch (NumberFormatException | DateTimeParseException e) {
+                    report.reject(row, e.getMessage());
+                    continue;
+                }
+                List<String> messages = ProductValidator.validate(product);
+                if (!messages.isEmpty()) {
+                    report.reject(row, String.join("; ", messages));
+                    continue;
+                }
+                chunk.add(product);
+                if (chunk.size() == CHUNK_SIZE) {
+                    insert(chunk, report);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insert(chunk, report);
+        }
+        report.elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Imported {} products ({} rejected) in {} ms, {} rows/s", report.imported,
+                report.rejected, report.elapsedMillis, report.getRowsPerSecond());
+        return report;
+    }
+
+    /**
+     * Insert one chunk in its own transaction, flushing every JDBC batch and clearing the persistence context
+     *
+     * @author tailam
+     */
+    private void insert(List<Product> chunk, ImportReport report) {
+        productCacheManager.publishing(() -> insertAndPublish(chunk));
+        report.imported += chunk.size();
+    }
+
+    private void insertAndPublish(List<Product> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Imported rows would flood the second-level cache, they are cached once read
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            for (int i = 0; i < chunk.size(); i++) {
+                entityManager.persist(chunk.get(i));
+                if ((i + 1) % batchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+        List<Product> imported = Collections.unmodifiableList(chunk);
+        productChangeListeners.forEach(listener -> listener.onProductsImported(imported));
+    }
+
+    private static Product toProduct(JsonNode node) {
+        Product product = new Product();
+        product.setProductName(text(node, "productName"));
+        product.setProductCode(text(node, "productCode"));
+        product.setDescription(text(node, "description"));
+        String releaseDate = text(node, "releaseDate");
+        product.setReleaseDate(releaseDate == null ? null : Date.valueOf(LocalDate.parse(releaseDate)));
+        String price = text(node, "price");
+        product.setPrice(price == null ? null : Float.valueOf(price.replace(",", "")));
+        String starRating = text(node, "starRating");
+        product.setStarRating(starRating == null ? null : Float.valueOf(starRating));
+        product.setImageUrl(text(node, "imageUrl"));
+        return product;
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        if (value == null || value.isNull()) {
+            return null;
+        }
+        String text = value.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    /**
+     * Outcome of an import: inserted and rejected rows and throughput
+     *
+     * @author tailam
+     */
+    public static class ImportReport {
+        private long imported;
+        private long rejected;
+        private long elapsedMillis;
+        private final List<String> errors = new ArrayList<>();
+
+        private void reject(long row, String message) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Row " + row + ": " + message);
+            }
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public long getRowsPerSecond() {
+            return elapsedMillis == 0 ? imported : imported * 1000 / elapsedMillis;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.vaadin.application.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One keyset page of products with the requested fields only
+ *
+ * @author tailam
+ */
+public class ProductPage {
+
+    private final List<Map<String, Object>> items;
+    private final String next;
+
+    public ProductPage(List<Map<String, Object>> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public List<Map<String, Object>> getItems() {
+        return items;
+    }
+
+    /**
+     * Continuation token of the following page, null on the last page
+     *
+     * @return next
+     */
+    public String getNext() {
+        return next;
+    }
+}
@@ -1,17 +1,40 @@
 package com.vaadin.application.service;
 
+import com.vaadin.application.cache.CatalogSnapshot;
+import com.vaadin.application.cache.ProductCacheManager;
+import com.vaadin.application.columnar.ProductColumnStore;
+import com.vaadin.application.error.ProductConflictException;
 import com.vaadin.application.model.Product;
+import com.vaadin.application.model.ProductRow;
+import com.vaadin.application.repository.ProductCursor;
+import com.vaadin.application.repository.ProductFilter;
 import com.vaadin.application.repository.ProductRepository;
+import com.vaadin.application.repository.ProductSpecifications;
+import com.vaadin.application.search.ProductSearchIndex;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheConfig;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import javax.persistence.Tuple;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,24 +44,178 @@ import java.util.logging.Logger;
  * @author tailam
  */
 @Service
-@CacheConfig(cacheNames = "productCache")
 public class ProductService {
     private final ProductRepository productRepository;
+    private final ProductCacheManager productCacheManager;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductStatistics productStatistics;
+    // Null unless product.columnar.enabled is set
+    private final ProductColumnStore productColumnStore;
+    // Null unless product.write-behind.enabled is set
+    private final ProductWriteBehindQueue productWriteBehindQueue;
+    private final List<ProductChangeListener> productChangeListeners;
     private static final Logger LOGGER = Logger.getLogger(ProductService.class.getName());
+    private static final List<String> UPDATE_FIELDS = List.of("productName", "productCode", "description",
+            "releaseDate", "price", "starRating", "imageUrl");
+    private static final Map<String, Function<Product, Comparable<?>>> SORT_KEYS = Map.of(
+            "productId", Product::getProductId,
+            "productName", Product::getProductName,
+            "productCode", Product::getProductCode,
+            "releaseDate", product -> product.getReleaseDate() == null ? null : product.getReleaseDate().getTime(),
+            "description", Product::getDescription,
+            "price", Product::getPrice,
+            "starRating", Product::getStarRating,
+            "imageUrl", Product::getImageUrl);
+    private static final List<String> PAGE_FIELDS = List.of("productId", "productName", "productCode",
+            "description", "releaseDate", "price", "starRating", "imageUrl");
 
     @Autowired
-    public ProductService(ProductRepository ProductRepository) {
+    public ProductService(ProductRepository ProductRepository, ProductCacheManager productCacheManager,
+                          ProductSearchIndex productSearchIndex, ProductStatistics productStatistics,
+                          ObjectProvider<ProductColumnStore> productColumnStore,
+                          ObjectProvider<ProductWriteBehindQueue> productWriteBehindQueue,
+                          List<ProductChangeListener> productChangeListeners) {
         this.productRepository = ProductRepository;
+        this.productCacheManager = productCacheManager;
+        this.productSearchIndex = productSearchIndex;
+        this.productStatistics = productStatistics;
+        this.productColumnStore = productColumnStore.getIfAvailable();
+        this.productWriteBehindQueue = productWriteBehindQueue.getIfAvailable();
+        this.productChangeListeners = productChangeListeners;
     }
 
     /**
-     * List and find all product in database
+     * List and find all product in database, from the shared catalog snapshot: the products must not be modified,
+     * findProduct returns a copy to edit
      *
      * @return listProduct
      */
-    @Cacheable(cacheNames = "findAllProductCache", key = "'ALL'")
     public List<Product> findAllProduct() {
-        return productRepository.findAll();
+        return productCacheManager.findAllProducts();
+    }
+
+    /**
+     * Find product by id
+     *
+     * @return product
+     */
+    public Product findProduct(Integer productId) {
+        return productCacheManager.findProduct(productId);
+    }
+
+    /**
+     * Find one page of grid rows matching the filter text
+     *
+     * @return listProductRow
+     */
+    public List<ProductRow> findProductRows(String filter, Pageable pageable) {
+        ProductFilter productFilter = ProductFilter.parse(filter);
+        if (productFilter.isEmpty()) {
+            return productRepository.findRowPage(pageable);
+        }
+        if (productFilter.hasText() && productSearchIndex.isReady()) {
+            // Answer from the search index whatever the sort, as countProducts does, and load only the page
+            int[] productIds = inSortOrder(search(productFilter), pageable.getSort());
+            return findAllInOrder(page(productIds, pageable));
+        }
+        Sort.Order columnOrder = columnOrder(pageable.getSort());
+        if (productFilter.isRangeOnly() && columnOrder != null && isColumnStoreReady()) {
+            // Filter and sort over the column arrays, only the rows of the requested page are loaded
+            int[] productIds = productColumnStore.query(productFilter, columnOrder.getProperty(),
+                    columnOrder.isAscending());
+            return findAllInOrder(page(productIds, pageable));
+        }
+        return productRepository.findRowSlice(productFilter.toSpecification(), pageable);
+    }
+
+    /**
+     * Find the next page of grid rows after the given product id (keyset paging)
+     *
+     * @return listProductRow
+     */
+    public List<ProductRow> findProductRowsAfter(Integer productId, String filter, int limit) {
+        ProductFilter productFilter = ProductFilter.parse(filter);
+        if (productFilter.isEmpty()) {
+            return productRepository.findRowPageAfter(productId, PageRequest.of(0, limit));
+        }
+        boolean columnRanges = productFilter.isRangeOnly() && isColumnStoreReady();
+        if (productFilter.hasText() && productSearchIndex.isReady() || columnRanges) {
+            int[] productIds = columnRanges ? productColumnStore.query(productFilter, "productId", true)
+                    : search(productFilter);
+            int insertion = Arrays.binarySearch(productIds, productId);
+            int from = insertion >= 0 ? insertion + 1 : -insertion - 1;
+            int to = Math.min(from + limit, productIds.length);
+            List<Integer> pageIds = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                pageIds.add(productIds[i]);
+            }
+            return findAllInOrder(pageIds);
+        }
+        return productRepository.findRowSlice(
+                productFilter.toSpecification().and(ProductSpecifications.productIdGreaterThan(productId)),
+                PageRequest.of(0, limit, Sort.by("productId")));
+    }
+
+    /**
+     * Keyset page of products in sort property order, continuing after the cursor token
+     *
+     * @return productPage
+     * @throws IllegalArgumentException for an unknown sort property or field, or a cursor of another sort
+     */
+    public ProductPage findProductPage(String sortProperty, Sort.Direction direction, String cursor,
+                                       List<String> fields, int limit) {
+        if (!ProductCursor.SORT_PROPERTIES.containsKey(sortProperty)) {
+            throw new IllegalArgumentException("Unsupported sort property: " + sortProperty);
+        }
+        List<String> selected = fields == null || fields.isEmpty() ? PAGE_FIELDS : fields;
+        for (String field : selected) {
+            if (!PAGE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unsupported field: " + field);
+            }
+        }
+        ProductCursor after = cursor == null ? null : ProductCursor.decode(cursor);
+        if (after != null && (!after.getSortProperty().equals(sortProperty) || after.getDirection() != direction)) {
+            throw new IllegalArgumentException("Cursor belongs to another sort order");
+        }
+
+        // One extra row tells whether a next page exists
+        List<Tuple> tuples = productRepository.findKeysetPage(sortProperty, direction, after, selected, limit + 1);
+        List<Map<String, Object>> items = new ArrayList<>(Math.min(tuples.size(), limit));
+        for (int i = 0; i < tuples.size() && i < limit; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            for (String field : selected) {
+                Object value = tuples.get(i).get(field);
+                item.put(field, value instanceof Date ? LocalDate.ofInstant(
+                        Instant.ofEpochMilli(((Date) value).getTime()), ZoneId.systemDefault()).toString() : value);
+            }
+            items.add(item);
+        }
+        String next = null;
+        if (tuples.size() > limit) {
+            next = ProductCursor.after(tuples.get(limit - 1), sortProperty, direction).encode();
+        }
+        return new ProductPage(items, next);
+    }
+
+    /**
+     * Count product matching the filter text, by the same rule findProductRows fetches them: free text is a
+     * substring match over every field in the search index once it is ready, range tokens included, and a name
+     * or code prefix match in the database only until then.
+     *
+     * @return numberOfProduct
+     */
+    public long countProducts(String filter) {
+        ProductFilter productFilter = ProductFilter.parse(filter);
+        if (productFilter.isEmpty()) {
+            return productRepository.count();
+        }
+        if (productFilter.hasText() && productSearchIndex.isReady()) {
+            return search(productFilter).length;
+        }
+        if (productFilter.isRangeOnly() && isColumnStoreReady()) {
+            return productColumnStore.count(productFilter);
+        }
+        return productRepository.count(productFilter.toSpecification());
     }
 
     /**
@@ -47,9 +224,17 @@ public class ProductService {
      * @return product
      * @author tailam
      */
-    @CacheEvict(cacheNames = "deleteProductCache", key = "#product", allEntries = true)
     public Product deleteProduct(Product product) {
-        productRepository.delete(product);
+        if (productWriteBehindQueue != null) {
+            // Outside of publishing, which applying a failed write needs to wait for
+            productWriteBehindQueue.flush(product.getProductId());
+        }
+        productCacheManager.publishing(() -> {
+            Product previous = findPrevious(product);
+            productRepository.delete(product);
+            Product deleted = previous != null ? previous : product;
+            productChangeListeners.forEach(listener -> listener.onProductDeleted(deleted));
+        });
         return product;
     }
 
@@ -58,14 +243,53 @@ public class ProductService {
      *
      * @author tailam
      */
-    @CachePut(cacheNames = "updateProductCache", key = "#product", unless = "#product!=null")
     public Product updateProduct(Product product) {
         if (product == null) {
             LOGGER.log(Level.SEVERE,
                     "Product is null. Are you sure you have connected your form to the application?");
             return null;
         }
-        return productRepository.save(product);
+        return updateProduct(findPrevious(product), product);
+    }
+
+    /**
+     * Update only the fields changed since the product was read, in a versioned update of those columns.
+     * In write-behind mode the statement is queued and the product is acknowledged from the caches.
+     *
+     * @return product with its new version
+     * @throws ProductConflictException when the product was changed or deleted by someone else meanwhile
+     * @author tailam
+     */
+    public Product updateProduct(Product original, Product product) {
+        List<String> fields = original == null || !Objects.equals(original.getVersion(), product.getVersion())
+                ? UPDATE_FIELDS : changedFields(original, product);
+        if (fields.isEmpty()) {
+            return product;
+        }
+        if (productWriteBehindQueue != null) {
+            return productWriteBehindQueue.submit(product, fields);
+        }
+        return productCacheManager.publishing(() -> {
+            if (!updateFields(product, fields)) {
+                productCacheManager.evictProduct(product);
+                throw new ProductConflictException(product.getProductId(),
+                        "Product " + product.getProductId() + " was changed by someone else");
+            }
+            Product saved = new Product(product);
+            saved.setVersion(product.getVersion() == null ? 1 : product.getVersion() + 1);
+            product.setVersion(saved.getVersion());
+            productChangeListeners.forEach(listener -> listener.onProductSaved(original, saved));
+            return saved;
+        });
+    }
+
+    private boolean updateFields(Product product, List<String> fields) {
+        try {
+            return productRepository.updateFields(product, fields) > 0;
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Changed between the version check and the update
+            return false;
+        }
     }
 
     /**
@@ -79,7 +303,14 @@ public class ProductService {
                     "Product is null. Are you sure you have connected your form to the application?");
             return;
         }
-        productRepository.save(product);
+        if (product.isPersisted()) {
+            updateProduct(product);
+            return;
+        }
+        productCacheManager.publishing(() -> {
+            Product saved = productRepository.save(product);
+            productChangeListeners.forEach(listener -> listener.onProductSaved(null, saved));
+        });
     }
 
     /**
@@ -88,18 +319,198 @@ public class ProductService {
      * @return numberOfProduct
      */
     public Long count() {
-        return productRepository.count();
+        return productStatistics.isReady() ? productStatistics.getCount() : productRepository.count();
+    }
+
+    /**
+     * DashBoard show: product count per half star rating
+     *
+     * @return stats
+     */
+    public Map<String, Long> getStats() {
+        return productStatistics.getRatingHistogram();
+    }
+
+    /**
+     * DashBoard show: product count per price range
+     *
+     * @return stats
+     */
+    public Map<String, Long> getPriceStats() {
+        return productStatistics.getPriceHistogram();
     }
 
     /**
-     * DashBoard show
+     * DashBoard show: product count per release year
      *
      * @return stats
      */
-    public Map<String, Integer> getStats() {
-        HashMap<String, Integer> stats = new HashMap<>();
-        findAllProduct().forEach(product ->
-                stats.put(product.getProductName(), product.getProducts().size()));
-        return stats;
+    public Map<String, Long> getReleaseYearStats() {
+        return productStatistics.getReleaseYearHistogram();
+    }
+
+    /**
+     * State of the product before a write, used by listeners to apply deltas
+     *
+     * @return product or null for a new product
+     */
+    private Product findPrevious(Product product) {
+        if (product.getProductId() == null) {
+            return null;
+        }
+        Product previous = productCacheManager.getCachedProduct(product.getProductId());
+        if (previous == null) {
+            previous = productRepository.findById(product.getProductId()).map(Product::new).orElse(null);
+        }
+        return previous;
+    }
+
+    private static List<String> changedFields(Product original, Product product) {
+        BeanWrapper before = new BeanWrapperImpl(original);
+        BeanWrapper after = new BeanWrapperImpl(product);
+        List<String> fields = new ArrayList<>();
+        for (String field : UPDATE_FIELDS) {
+            Object previous = before.getPropertyValue(field);
+            Object current = after.getPropertyValue(field);
+            // Dates loaded by JPA are Timestamps, which never equal a plain Date
+            boolean same = previous instanceof Date && current instanceof Date
+                    ? ((Date) previous).getTime() == ((Date) current).getTime()
+                    : Objects.equals(previous, current);
+            if (!same) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private List<ProductRow> findAllInOrder(List<Integer> productIds) {
+        if (productIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, ProductRow> byId = new HashMap<>();
+        productRepository.findRowsByIds(productIds).forEach(row -> byId.put(row.getProductId(), row));
+        List<ProductRow> rows = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds) {
+            ProductRow row = byId.get(productId);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static List<Integer> page(int[] productIds, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), productIds.length);
+        int to = Math.min(from + pageable.getPageSize(), productIds.length);
+        List<Integer> pageIds = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            pageIds.add(productIds[i]);
+        }
+        return pageIds;
+    }
+
+    /**
+     * Ids found by the search index, ascending, put in the order of the sort using the catalog snapshot.
+     * Products without a sort value come last in every direction, like in the database.
+     *
+     * @return productIds
+     * @throws IllegalArgumentException for a property the grid cannot sort by
+     */
+    private int[] inSortOrder(int[] productIds, Sort sort) {
+        Sort.Direction idDirection = sort.isUnsorted() ? Sort.Direction.ASC : idOnlyDirection(sort);
+        if (idDirection == Sort.Direction.ASC) {
+            return productIds;
+        }
+        if (idDirection == Sort.Direction.DESC) {
+            int[] reversed = new int[productIds.length];
+            for (int i = 0; i < productIds.length; i++) {
+                reversed[i] = productIds[productIds.length - 1 - i];
+            }
+            return reversed;
+        }
+        Comparator<Product> comparator = null;
+        for (Sort.Order order : sort) {
+            Function<Product, Comparable<?>> key = SORT_KEYS.get(order.getProperty());
+            if (key == null) {
+                throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            }
+            Comparator<Product> next = sortKey(key, order.isAscending());
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        comparator = comparator.thenComparing(Product::getProductId);
+        CatalogSnapshot snapshot = productCacheManager.getCatalog();
+        List<Product> products = new ArrayList<>(productIds.length);
+        for (int productId : productIds) {
+            Product product = snapshot.find(productId);
+            // Indexed after this snapshot was taken, sorted as if it had no values
+            products.add(product != null ? product : new Product(productId, null, null, null, null, null, null, null));
+        }
+        products.sort(comparator);
+        int[] sorted = new int[products.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = products.get(i).getProductId();
+        }
+        return sorted;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Product> sortKey(Function<Product, Comparable<?>> key, boolean ascending) {
+        Comparator<Comparable> values = ascending ? Comparator.naturalOrder() : Comparator.reverseOrder();
+        return Comparator.comparing(product -> (Comparable) key.apply(product), Comparator.nullsLast(values));
+    }
+
+    /**
+     * Ids of the products whose fields contain the free text, ascending, those outside a range token left out
+     *
+     * @return productIds
+     */
+    private int[] search(ProductFilter productFilter) {
+        int[] productIds = productSearchIndex.search(productFilter.getText());
+        if (!productFilter.hasRanges()) {
+            return productIds;
+        }
+        // A new array, the index keeps its last result
+        CatalogSnapshot snapshot = productCacheManager.getCatalog();
+        int[] matches = new int[productIds.length];
+        int count = 0;
+        for (int productId : productIds) {
+            Product product = snapshot.find(productId);
+            if (product != null && productFilter.matchesRanges(product)) {
+                matches[count++] = productId;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    private boolean isColumnStoreReady() {
+        return productColumnStore != null && productColumnStore.isReady();
+    }
+
+    /**
+     * Order the column store can answer: one sortable property, optionally followed by product id ascending
+     *
+     * @return order or null
+     */
+    private static Sort.Order columnOrder(Sort sort) {
+        List<Sort.Order> orders = sort.toList();
+        if (orders.isEmpty() || orders.size() > 2
+                || !ProductColumnStore.SORTABLE_PROPERTIES.contains(orders.get(0).getProperty())) {
+            return null;
+        }
+        if (orders.size() == 2 && !(orders.get(1).getProperty().equals("productId") && orders.get(1).isAscending())) {
+            return null;
+        }
+        return orders.get(0);
+    }
+
+    private static Sort.Direction idOnlyDirection(Sort sort) {
+        Sort.Direction direction = null;
+        for (Sort.Order order : sort) {
+            if (!"productId".equals(order.getProperty())) {
+                return null;
+            }
+            direction = order.getDirection();
+        }
+        return direction;
     }
 }
@@ -0,0 +1,185 @@
+package com.vaadin.application.service;
+
+import com.vaadin.application.cache.ProductCacheManager;
+import com.vaadin.application.model.Product;
+import com.vaadin.application.repository.ProductRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dashboard aggregates kept current from product writes.
+ * Bootstrapped once with GROUP BY queries, then maintained with deltas.
+ * Release years are taken in the JVM time zone, like the dates Hibernate reads.
+ *
+ * @author tailam
+ */
+@Component
+public class ProductStatistics implements ProductChangeListener {
+
+    static final int PRICE_BUCKET_WIDTH = 100;
+
+    private static final Logger logger = LogManager.getLogger(ProductStatistics.class);
+    private final ProductRepository productRepository;
+    private final ProductCacheManager productCacheManager;
+    private volatile boolean ready;
+    private long count;
+    private TreeMap<Integer, Long> priceBuckets = new TreeMap<>();
+    private TreeMap<Integer, Long> ratingBuckets = new TreeMap<>();
+    private TreeMap<Integer, Long> releaseYears = new TreeMap<>();
+
+    public ProductStatistics(ProductRepository productRepository, ProductCacheManager productCacheManager) {
+        this.productRepository = productRepository;
+        this.productCacheManager = productCacheManager;
+    }
+
+    /**
+     * Load aggregates once the application is up, unless they were counted from the restored catalog
+     *
+     * @author tailam
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!ready) {
+            bootstrap();
+        }
+    }
+
+    /**
+     * Load aggregates from the database. Writes wait meanwhile: a write committed before the queries but
+     * published after them would be counted twice.
+     *
+     * @author tailam
+     */
+    public void bootstrap() {
+        long total = productCacheManager.exclusively(() -> {
+            synchronized (this) {
+                count = productRepository.count();
+                priceBuckets = toBuckets(productRepository.countByPriceBucket());
+                ratingBuckets = toBuckets(productRepository.countByRatingBucket());
+                releaseYears = new TreeMap<>();
+                for (Object[] row : productRepository.countByReleaseDate()) {
+                    add(releaseYears, releaseYear((Date) row[0]), ((Number) row[1]).longValue());
+                }
+                ready = true;
+                return count;
+            }
+        });
+        logger.info("Loaded statistics for {} products", total);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public synchronized void onCatalogRestored(List<Product> products) {
+        count = products.size();
+        priceBuckets = new TreeMap<>();
+        ratingBuckets = new TreeMap<>();
+        releaseYears = new TreeMap<>();
+        products.forEach(product -> apply(product, 1));
+        ready = true;
+        logger.info("Counted statistics for {} restored products", count);
+    }
+
+    @Override
+    public synchronized void onProductSaved(Product previous, Product saved) {
+        if (previous == null) {
+            count++;
+        } else {
+            apply(previous, -1);
+        }
+        apply(saved, 1);
+    }
+
+    @Override
+    public synchronized void onProductDeleted(Product deleted) {
+        count--;
+        apply(deleted, -1);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Product count per price range
+     *
+     * @return histogram
+     */
+    public synchronized Map<String, Long> getPriceHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        priceBuckets.forEach((bucket, number) -> histogram.put(
+                "$" + bucket * PRICE_BUCKET_WIDTH + " - $" + ((bucket + 1) * PRICE_BUCKET_WIDTH - 1), number));
+        return histogram;
+    }
+
+    /**
+     * Product count per half star rating
+     *
+     * @return histogram
+     */
+    public synchronized Map<String, Long> getRatingHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        ratingBuckets.forEach((bucket, number) -> histogram.put(
+                String.format("%.1f - %.1f stars", bucket / 2.0, (bucket + 1) / 2.0), number));
+        return histogram;
+    }
+
+    /**
+     * Product count per release year
+     *
+     * @return histogram
+     */
+    public synchronized Map<String, Long> getReleaseYearHistogram() {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        releaseYears.forEach((year, number) -> histogram.put(String.valueOf(year), number));
+        return histogram;
+    }
+
+    private void apply(Product product, long delta) {
+        if (product.getPrice() != null) {
+            add(priceBuckets, (int) Math.floor(product.getPrice() / PRICE_BUCKET_WIDTH), delta);
+        }
+        if (product.getStarRating() != null) {
+            add(ratingBuckets, (int) Math.floor(product.getStarRating() * 2), delta);
+        }
+        if (product.getReleaseDate() != null) {
+            add(releaseYears, releaseYear(product.getReleaseDate()), delta);
+        }
+    }
+
+    private static int releaseYear(Date releaseDate) {
+        return Instant.ofEpochMilli(releaseDate.getTime()).atZone(ZoneId.systemDefault()).getYear();
+    }
+
+    private static void add(TreeMap<Integer, Long> buckets, int bucket, long delta) {
+        long number = buckets.getOrDefault(bucket, 0L) + delta;
+        if (number > 0) {
+            buckets.put(bucket, number);
+        } else {
+            buckets.remove(bucket);
+        }
+    }
+
+    private static TreeMap<Integer, Long> toBuckets(List<Object[]> rows) {
+        TreeMap<Integer, Long> buckets = new TreeMap<>();
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                buckets.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+            }
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,190 @@
+package com.vaadin.application.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Fixed-size product image thumbnails, generated once into a disk cache next to the Ehcache store
+ *
+ * @author tailam
+ */
+@Service
+public class ProductThumbnailService {
+
+    public static final String THUMBNAIL_PATH = "/api/images/thumbnails/";
+
+    private static final Logger logger = LogManager.getLogger(ProductThumbnailService.class);
+    private static final String IMAGE_LOCATION = "classpath:META-INF/resources/images/";
+    private static final Pattern IMAGE_NAME = Pattern.compile("[A-Za-z0-9_-]+\\.png");
+
+    private final Path directory;
+    private final int size;
+    // Image name -> generated thumbnail, absent until first requested or warmed
+    private final Map<String, Thumbnail> thumbnails = new ConcurrentHashMap<>();
+    private final PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+
+    public ProductThumbnailService(@Value("${product.thumbnail.directory:users/cache/thumbnails}") String directory,
+                                   @Value("${product.thumbnail.size:64}") int size) {
+        this.directory = Paths.get(directory);
+        this.size = size;
+    }
+
+    /**
+     * Generate the thumbnails of all bundled images so grids never wait on image decoding
+     *
+     * @author tailam
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() throws IOException {
+        for (Resource resource : resolver.getResources(IMAGE_LOCATION + "*.png")) {
+            getThumbnail(resource.getFilename());
+        }
+        logger.info("{} product thumbnails ready in {}", thumbnails.size(), directory.toAbsolutePath());
+    }
+
+    /**
+     * Thumbnail URL of a product image URL, versioned by the thumbnail ETag so it can be cached forever
+     *
+     * @return url or null when there is no such image
+     */
+    public String getThumbnailUrl(String imageUrl) {
+        if (imageUrl == null) {
+            return null;
+        }
+        Thumbnail thumbnail = getThumbnail(imageUrl.substring(imageUrl.lastIndexOf('/') + 1));
+        return thumbnail == null ? null : THUMBNAIL_PATH + thumbnail.name + "?v=" + thumbnail.version;
+    }
+
+    /**
+     * Thumbnail of a bundled image, generated on first use
+     *
+     * @return thumbnail or null when there is no such image
+     */
+    public Thumbnail getThumbnail(String name) {
+        if (name == null || !IMAGE_NAME.matcher(name).matches()) {
+            return null;
+        }
+        Thumbnail thumbnail = thumbnails.get(name);
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        Resource resource = resolver.getResource(IMAGE_LOCATION + name);
+        if (!resource.exists()) {
+            return null;
+        }
+        return thumbnails.computeIfAbsent(name, key -> load(key, resource));
+    }
+
+    private Thumbnail load(String name, Resource resource) {
+        Path path = directory.resolve(name.substring(0, name.length() - ".png".length()) + "-" + size + ".png");
+        try {
+            if (!Files.exists(path)) {
+                generate(resource, path);
+            }
+            byte[] bytes = Files.readAllBytes(path);
+            return new Thumbnail(name, path, bytes.length, digest(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create thumbnail of " + name, e);
+        }
+    }
+
+    private void generate(Resource resource, Path path) throws IOException {
+        BufferedImage source;
+        try (InputStream inputStream = resource.getInputStream()) {
+            source = ImageIO.read(inputStream);
+        }
+        if (source == null) {
+            throw new IOException("Unreadable image " + resource.getFilename());
+        }
+        // Fit inside size x size keeping the aspect ratio, centered on a transparent square
+        double scale = Math.min((double) size / source.getWidth(), (double) size / source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage thumbnail = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.drawImage(source, (size - width) / 2, (size - height) / 2, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        Files.createDirectories(path.getParent());
+        Path temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        ImageIO.write(thumbnail, "png", temporary.toFile());
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(bytes);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Generated thumbnail file
+     *
+     * @author tailam
+     */
+    public static final class Thumbnail {
+        private final String name;
+        private final Path path;
+        private final long length;
+        private final String version;
+
+        private Thumbnail(String name, Path path, long length, String version) {
+            this.name = name;
+            this.path = path;
+            this.length = length;
+            this.version = version;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Strong ETag, the quoted content hash
+         *
+         * @return eTag
+         */
+        public String getETag() {
+            return "\"" + version + "\"";
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.vaadin.application.service;
+
+import com.vaadin.application.cache.ProductCacheManager;
+import com.vaadin.application.error.ProductConflictException;
+import com.vaadin.application.model.Product;
+import com.vaadin.application.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind mode of ProductService.updateProduct, on when product.write-behind.enabled is set.
+ * An edit is checked against the cached version, published to the listeners and acknowledged at once,
+ * the database write waits in a queue holding one entry per product: later edits of the same product are
+ * merged into it and written by a single versioned update. The queue is flushed in one transaction per
+ * batch every flush interval, as soon as it holds a batch, and on shutdown. A full queue makes the editing
+ * thread flush it before its edit is taken.
+ * An edit whose write fails, for example because the product was changed behind the caches meanwhile, is lost:
+ * the product is then reloaded from the database and published again through ProductCacheManager.applyChanges.
+ * Until then applyChanges leaves products with a queued or running edit alone, the database is behind them.
+ *
+ * @author tailam
+ */
+@Service
+@ConditionalOnProperty(name = "product.write-behind.enabled", havingValue = "true")
+public class ProductWriteBehindQueue {
+
+    private static final Logger logger = LogManager.getLogger(ProductWriteBehindQueue.class);
+
+    private final ProductRepository productRepository;
+    private final ProductCacheManager productCacheManager;
+    private final List<ProductChangeListener> productChangeListeners;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    // Edits waiting for a flush in the order they were first queued, guarded by lock
+    private final Lock lock = new ReentrantLock();
+    private final Map<Integer, PendingEdit> pending = new LinkedHashMap<>();
+    // Edits taken by the running flush, a new edit of one of these products starts from its acknowledged version
+    private final Map<Integer, PendingEdit> flushing = new HashMap<>();
+    // One flush at a time, so the writes of a product are committed in the order they were queued
+    private final Lock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // Edits of one product are checked, queued and published one at a time, in order, under its stripe
+    private final Object[] stripes = new Object[64];
+    private ScheduledFuture<?> flushTask;
+
+    private final Timer flushTimer;
+    private final Counter coalesced;
+    private final Counter backpressure;
+    private final Counter lost;
+
+    public ProductWriteBehindQueue(ProductRepository productRepository, ProductCacheManager productCacheManager,
+                                   List<ProductChangeListener> productChangeListeners,
+                                   TransactionTemplate transactionTemplate, TaskScheduler taskScheduler,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${product.write-behind.capacity:10000}") int capacity,
+                                   @Value("${product.write-behind.batch-size:100}") int batchSize,
+                                   @Value("${product.write-behind.flush-interval-ms:500}") long flushIntervalMillis) {
+        this.productRepository = productRepository;
+        this.productCacheManager = productCacheManager;
+        this.productChangeListeners = productChangeListeners;
+        this.transactionTemplate = transactionTemplate;
+        this.taskScheduler = taskScheduler;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+        productCacheManager.setPendingEdits(this::hasPendingEdit);
+        Gauge.builder("product.write.behind.queue", this, ProductWriteBehindQueue::size)
+                .description("Product edits waiting to be written")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("product.write.behind.flush")
+                .description("Transactions writing a batch of queued product edits")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("product.write.behind.coalesced")
+                .description("Product edits merged into an edit of the same product already queued")
+                .register(meterRegistry);
+        this.backpressure = Counter.builder("product.write.behind.backpressure")
+                .description("Product edits that found the queue full and flushed it first")
+                .register(meterRegistry);
+        this.lost = Counter.builder("product.write.behind.lost")
+                .description("Queued product edits that could not be written")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        logger.info("Writing product edits behind, flushing every {} ms or {} edits, at most {} queued",
+                flushIntervalMillis, batchSize, capacity);
+        flushTask = taskScheduler.scheduleWithFixedDelay(this::flush,
+                Instant.now().plusMillis(flushIntervalMillis), Duration.ofMillis(flushIntervalMillis));
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flush();
+    }
+
+    /**
+     * Queue the changed fields of a product and publish it as saved
+     *
+     * @return product with its new version
+     * @throws ProductConflictException when the product was changed or deleted by someone else meanwhile
+     * @author tailam
+     */
+    public Product submit(Product product, Collection<String> fields) {
+        Integer productId = product.getProductId();
+        while (true) {
+            synchronized (stripes[Math.floorMod(productId, stripes.length)]) {
+                Product saved = acknowledge(product, fields);
+                if (saved != null) {
+                    return saved;
+                }
+            }
+            backpressure.increment();
+            flush();
+        }
+    }
+
+    /**
+     * Write the queued edit of a product now, so a delete finds the product at its acknowledged version
+     *
+     * @author tailam
+     */
+    public void flush(Integer productId) {
+        flushLock.lock();
+        try {
+            PendingEdit edit;
+            lock.lock();
+            try {
+                edit = pending.remove(productId);
+                if (edit != null) {
+                    flushing.put(productId, edit);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (edit != null) {
+                try {
+                    write(List.of(edit));
+                } finally {
+                    clearFlushing();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Write every queued edit, one transaction per batch
+     *
+     * @author tailam
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            List<PendingEdit> batch;
+            while (!(batch = take()).isEmpty()) {
+                try {
+                    write(batch);
+                } finally {
+                    clearFlushing();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Edits waiting to be written
+     *
+     * @return queued
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the product has an edit queued or being written, its database row is behind what was published
+     *
+     * @return pending
+     */
+    public boolean hasPendingEdit(Integer productId) {
+        lock.lock();
+        try {
+            return pending.containsKey(productId) || flushing.containsKey(productId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check the edit against the last published version and merge it into the queue, then publish it.
+     * Runs under the stripe of the product, the queue lock is only held to read and change the queue.
+     *
+     * @return product with its new version, null when the queue is full
+     */
+    private Product acknowledge(Product product, Collection<String> fields) {
+        Integer productId = product.getProductId();
+        while (true) {
+            PendingEdit queued;
+            Product current;
+            lock.lock();
+            try {
+                queued = pending.get(productId);
+                PendingEdit running = flushing.get(productId);
+                current = queued != null ? queued.acknowledged : running != null ? running.acknowledged : null;
+            } finally {
+                lock.unlock();
+            }
+            if (current == null) {
+                current = findCurrent(productId);
+            }
+            checkVersion(current, product);
+            Product previous = current;
+            // Inserted and published under publishing, so the change log never sees the write in between
+            Product saved = productCacheManager.publishing(() -> {
+                Product merged;
+                lock.lock();
+                try {
+                    PendingEdit edit = pending.get(productId);
+                    if (edit != queued) {
+                        // Taken by a flush meanwhile, check again against the edit being written
+                        return null;
+                    }
+                    if (edit == null) {
+                        if (pending.size() >= capacity) {
+                            return null;
+                        }
+                        edit = new PendingEdit(version(previous));
+                        pending.put(productId, edit);
+                        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+                            taskScheduler.schedule(this::flush, Instant.now());
+                        }
+                    } else {
+                        coalesced.increment();
+                    }
+                    edit.fields.addAll(fields);
+                    merged = new Product(product);
+                    merged.setVersion(edit.baseVersion + 1);
+                    edit.acknowledged = new Product(merged);
+                } finally {
+                    lock.unlock();
+                }
+                productChangeListeners.forEach(listener -> listener.onProductSaved(previous, merged));
+                return merged;
+            });
+            if (saved != null) {
+                product.setVersion(saved.getVersion());
+                return saved;
+            }
+            if (queued == null) {
+                // The queue is full
+                return null;
+            }
+        }
+    }
+
+    private Product findCurrent(Integer productId) {
+        Product current = productCacheManager.getCachedProduct(productId);
+        return current != null ? current : productRepository.findById(productId).map(Product::new).orElse(null);
+    }
+
+    private static void checkVersion(Product current, Product product) {
+        if (current == null || version(current) != version(product)) {
+            throw new ProductConflictException(product.getProductId(),
+                    "Product " + product.getProductId() + " was changed by someone else");
+        }
+    }
+
+    private static int version(Product product) {
+        // Rows inserted outside of JPA may have no version yet, they count as version 0
+        return product.getVersion() == null ? 0 : product.getVersion();
+    }
+
+    private void clearFlushing() {
+        lock.lock();
+        try {
+            flushing.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move the oldest queued edits to the running flush
+     *
+     * @return batch
+     */
+    private List<PendingEdit> take() {
+        lock.lock();
+        try {
+            List<PendingEdit> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<Map.Entry<Integer, PendingEdit>> entries = pending.entrySet().iterator();
+            while (entries.hasNext() && batch.size() < batchSize) {
+                Map.Entry<Integer, PendingEdit> entry = entries.next();
+                flushing.put(entry.getKey(), entry.getValue());
+                batch.add(entry.getValue());
+                entries.remove();
+            }
+            return batch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write a batch in one transaction, edit by edit when that fails, and republish what could not be written
+     *
+     * @author tailam
+     */
+    private void write(List<PendingEdit> batch) {
+        List<Integer> failed = new ArrayList<>();
+        Timer.Sample sample = Timer.start();
+        try {
+            failed.addAll(transactionTemplate.execute(status -> update(batch)));
+        } catch (RuntimeException e) {
+            logger.warn("Could not write {} product edits together, writing them one by one", batch.size(), e);
+            for (PendingEdit edit : batch) {
+                try {
+                    failed.addAll(transactionTemplate.execute(status -> update(List.of(edit))));
+                } catch (ObjectOptimisticLockingFailureException conflict) {
+                    // Changed by someone else after its version was read from the second-level cache
+                    failed.add(edit.productId());
+                } catch (RuntimeException editFailure) {
+                    logger.error("Could not write the edit of product {}", edit.productId(), editFailure);
+                    failed.add(edit.productId());
+                }
+            }
+        }
+        sample.stop(flushTimer);
+        if (!failed.isEmpty()) {
+            lost.increment(failed.size());
+            logger.warn("Lost the edits of products {}, reloading them", failed);
+            lock.lock();
+            try {
+                // No longer ahead of the database, unless a later edit of the product is queued already
+                flushing.keySet().removeAll(failed);
+            } finally {
+                lock.unlock();
+            }
+            try {
+                productCacheManager.applyChanges(failed);
+            } catch (RuntimeException e) {
+                // The caches keep the lost edits until their ttl
+                logger.error("Could not reload products {}", failed, e);
+            }
+        }
+    }
+
+    /**
+     * Versioned update of each edit in the current transaction
+     *
+     * @return ids of the products changed by someone else
+     */
+    private List<Integer> update(List<PendingEdit> batch) {
+        List<Integer> conflicts = new ArrayList<>();
+        for (PendingEdit edit : batch) {
+            Product product = new Product(edit.acknowledged);
+            product.setVersion(edit.baseVersion);
+            if (productRepository.updateFields(product, edit.fields) == 0) {
+                conflicts.add(edit.productId());
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Changes of one product queued since its version in the database
+     */
+    private static final class PendingEdit {
+        private final int baseVersion;
+        private final Set<String> fields = new LinkedHashSet<>();
+        // Product as published, its version is the one the write will give it
+        private Product acknowledged;
+
+        private PendingEdit(int baseVersion) {
+            this.baseVersion = baseVersion;
+        }
+
+        private Integer productId() {
+            return acknowledged.getProductId();
+        }
+    }
+}
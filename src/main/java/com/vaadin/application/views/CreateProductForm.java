@@ -1,6 +1,7 @@
 package com.vaadin.application.views;
 
 import com.vaadin.application.model.Product;
+import com.vaadin.application.model.ProductValidator;
 import com.vaadin.application.service.ProductService;
 import com.vaadin.flow.component.ComponentEvent;
 import com.vaadin.flow.component.ComponentEventListener;
@@ -126,33 +127,18 @@ public class CreateProductForm extends FormLayout {
      */
     private void validateCreateProductForm() {
         binderProduct.forField(productName).asRequired("*Required")
-                .withValidator(
-                        productName -> !productName.isBlank() && !productName.isEmpty(),
-                        "*Must have content")
-                .withValidator(
-                        name -> name.length() >= 3,
-                        "*Name must contain at least 3 characters")
+                .withValidator(ProductValidator::hasContent, ProductValidator.MUST_HAVE_CONTENT)
+                .withValidator(ProductValidator::isValidName, ProductValidator.NAME_MESSAGE)
                 .bind(Product::getProductName, Product::setProductName);
         binderProduct.forField(productCode).asRequired("*Required")
-                .withValidator(
-                        productCode -> !productCode.isBlank() && !productCode.isEmpty(),
-                        "*Must have content")
-                .withValidator(
-                        productCode -> productCode.length() >= 6 && productCode.contains("-"),
-                        "*Code must contain at least 6 characters with correction format \n" +
-                                "*Example: ABC-1234"
-                )
+                .withValidator(ProductValidator::hasContent, ProductValidator.MUST_HAVE_CONTENT)
+                .withValidator(ProductValidator::isValidCode, ProductValidator.CODE_MESSAGE)
                 .bind(Product::getProductCode, Product::setProductCode);
         binderProduct.forField(description).asRequired("*Required")
-                .withValidator(
-                        description -> !description.isBlank() && !description.isEmpty(),
-                        "*Must have content")
-                .withValidator(
-                        description -> description.length() <= 50,
-                        "*Description have maximum with 50 characters"
-                )
+                .withValidator(ProductValidator::hasContent, ProductValidator.MUST_HAVE_CONTENT)
+                .withValidator(ProductValidator::isValidDescription, ProductValidator.DESCRIPTION_MESSAGE)
                 .bind(Product::getDescription, Product::setDescription);
-        binderProduct.forField(releaseDate).asRequired("*Please choose a date by button")
+        binderProduct.forField(releaseDate).asRequired(ProductValidator.RELEASE_DATE_MESSAGE)
                 .withConverter(new LocalDateToDateConverter())
                 .withValidator(
                         releaseDate -> !releaseDate.toString().isBlank() && !releaseDate.toString().isEmpty(),
@@ -174,9 +160,8 @@ public class CreateProductForm extends FormLayout {
                         "*Must have content by number"
                 )
                 .withValidator(
-                        price -> Float.parseFloat(price.replace(",", "")) >= 1.00F &&
-                                Float.parseFloat(price.replace(",", "")) <= 10000.00F,
-                        "*Price must be between 1 and 10000 \n with correction format: ##,###.##"
+                        price -> ProductValidator.isValidPrice(Float.parseFloat(price.replace(",", ""))),
+                        ProductValidator.PRICE_MESSAGE
                 )
                 .withConverter(new StringToFloatConverter("Must be a number"))
                 .bind(Product::getPrice, Product::setPrice);
@@ -186,20 +171,14 @@ public class CreateProductForm extends FormLayout {
                         "*Must have content with number"
                 )
                 .withValidator(
-                        starRating -> Float.parseFloat(starRating) >= 1.00F &&
-                                Float.parseFloat(starRating) <= 5.00F,
-                        "*Star Rating must be between 1 and 5 \n with correction format: #.##"
+                        starRating -> ProductValidator.isValidStarRating(Float.parseFloat(starRating)),
+                        ProductValidator.STAR_RATING_MESSAGE
                 )
                 .withConverter(new StringToFloatConverter("Must be a number"))
                 .bind(Product::getStarRating, Product::setStarRating);
         binderProduct.forField(imageUrl).asRequired("*Required")
-                .withValidator(
-                        imageUrl -> !imageUrl.isBlank() && !imageUrl.isEmpty(),
-                        "*Must have content")
-                .withValidator(
-                        imageUrl -> imageUrl.contains(".png"),
-                        "*Must be .PNG file"
-                )
+                .withValidator(ProductValidator::hasContent, ProductValidator.MUST_HAVE_CONTENT)
+                .withValidator(ProductValidator::isValidImageUrl, ProductValidator.IMAGE_URL_MESSAGE)
                 .bind(Product::getImageUrl, Product::setImageUrl);
     }
 
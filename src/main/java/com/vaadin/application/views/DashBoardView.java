@@ -1,20 +1,29 @@
 package com.vaadin.application.views;
 
-import com.vaadin.application.service.ProductService;
+import com.vaadin.application.service.ProductAsyncService;
+import com.vaadin.flow.component.AttachEvent;
 import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.charts.Chart;
+import com.vaadin.flow.component.charts.model.AxisType;
 import com.vaadin.flow.component.charts.model.ChartType;
 import com.vaadin.flow.component.charts.model.DataSeries;
 import com.vaadin.flow.component.charts.model.DataSeriesItem;
+import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.function.SerializableConsumer;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * DashBoard View
+ * DashBoard View, rendered with placeholders that are filled in over push as the figures arrive
  *
  * @author tailam
  */
@@ -22,36 +31,94 @@ import java.util.Map;
 @Route(value = "dashboard", layout = MainLayout.class)
 public class DashBoardView extends VerticalLayout {
 
-    private final ProductService productService;
+    private final ProductAsyncService productAsyncService;
+    // Loads of the current attach, cancelled when the user navigates away
+    private final List<CompletableFuture<?>> loads = new ArrayList<>();
 
-    public DashBoardView(ProductService productService) {
-        this.productService = productService;
+    private final Span productStats = new Span("Loading products...");
+    private final Div productsChart = placeholder();
+    private final Div priceChart = placeholder();
+    private final Div releaseYearChart = placeholder();
+
+    public DashBoardView(ProductAsyncService productAsyncService) {
+        this.productAsyncService = productAsyncService;
 
         addClassName("dashboard-view");
         setDefaultHorizontalComponentAlignment(Alignment.CENTER);
+        productStats.addClassName("contact-stats");
+
+        add(productStats, productsChart, priceChart, releaseYearChart);
+    }
 
-        add(
-                getProductStats(),
-                getProductsChart()
-        );
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        super.onAttach(attachEvent);
+        UI ui = attachEvent.getUI();
+        load(ui, productAsyncService.count(), count -> productStats.setText(count + " products"));
+        load(ui, productAsyncService.getStats(), stats -> replace(productsChart, getProductsChart(stats)));
+        load(ui, productAsyncService.getPriceStats(),
+                stats -> replace(priceChart, getHistogramChart("Products by price", stats)));
+        load(ui, productAsyncService.getReleaseYearStats(),
+                stats -> replace(releaseYearChart, getHistogramChart("Products by release year", stats)));
     }
 
-    private Span getProductStats() {
-        Span stats = new Span(productService.count() + " products");
-        stats.addClassName("contact-stats");
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        super.onDetach(detachEvent);
+        loads.forEach(load -> load.cancel(true));
+        loads.clear();
+    }
 
-        return stats;
+    /**
+     * Apply the result inside UI.access once it arrives, nothing is applied after the load was cancelled
+     *
+     * @author tailam
+     */
+    private <T> void load(UI ui, CompletableFuture<T> load, SerializableConsumer<T> apply) {
+        loads.add(load);
+        load.whenComplete((value, error) -> {
+            if (load.isCancelled()) {
+                return;
+            }
+            ui.access(() -> {
+                loads.remove(load);
+                if (error == null) {
+                    apply.accept(value);
+                } else {
+                    productStats.setText("Could not load the dashboard, please reload the page");
+                }
+            });
+        });
     }
 
-    private Component getProductsChart() {
+    private static Div placeholder() {
+        Div placeholder = new Div();
+        placeholder.addClassName("chart-placeholder");
+        return placeholder;
+    }
+
+    private Component getProductsChart(Map<String, Long> stats) {
         Chart chart = new Chart(ChartType.PIE);
 
         DataSeries dataSeries = new DataSeries();
-        Map<String, Integer> stats = productService.getStats();
         stats.forEach((name, number) ->
                 dataSeries.add(new DataSeriesItem(name, number)));
 
         chart.getConfiguration().setSeries(dataSeries);
         return chart;
     }
+
+    private Component getHistogramChart(String title, Map<String, Long> stats) {
+        Chart chart = new Chart(ChartType.COLUMN);
+
+        DataSeries dataSeries = new DataSeries(title);
+        stats.forEach((name, number) ->
+                dataSeries.add(new DataSeriesItem(name, number)));
+
+        chart.getConfiguration().setTitle(title);
+        chart.getConfiguration().getxAxis().setType(AxisType.CATEGORY);
+        chart.getConfiguration().getLegend().setEnabled(false);
+        chart.getConfiguration().setSeries(dataSeries);
+        return chart;
+    }
 }
@@ -6,6 +6,7 @@ import com.vaadin.flow.component.Text;
 import com.vaadin.flow.component.applayout.AppLayout;
 import com.vaadin.flow.component.applayout.DrawerToggle;
 import com.vaadin.flow.component.avatar.Avatar;
+import com.vaadin.flow.component.page.Push;
 import com.vaadin.flow.component.html.H1;
 import com.vaadin.flow.component.html.Image;
 import com.vaadin.flow.component.html.Span;
@@ -28,6 +29,7 @@ import java.util.Optional;
 /**
  * The main view is a top-level placeholder for other views.
  */
+@Push
 @PWA(name = "My First Vaadin App", shortName = "My First Vaadin App", enableInstallPrompt = false)
 @Theme(themeFolder = "myfirstvaadinapp")
 @PageTitle("Main")
@@ -1,29 +1,34 @@
 package com.vaadin.application.views;
 
-import com.vaadin.application.cache.ProductCacheService;
-import com.vaadin.application.cache.SortDataValue;
+import com.vaadin.application.error.ProductConflictException;
+import com.vaadin.application.error.ProductNotFoundException;
 import com.vaadin.application.model.Product;
+import com.vaadin.application.model.ProductRow;
+import com.vaadin.application.provider.ProductDataProvider;
+import com.vaadin.application.push.ProductChangeBroadcaster;
+import com.vaadin.application.service.ProductAsyncService;
 import com.vaadin.application.service.ProductService;
+import com.vaadin.application.service.ProductThumbnailService;
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.icon.Icon;
 import com.vaadin.flow.component.icon.VaadinIcon;
+import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.textfield.TextField;
-import com.vaadin.flow.data.provider.DataProvider;
-import com.vaadin.flow.data.provider.ListDataProvider;
-import com.vaadin.flow.data.renderer.NumberRenderer;
+import com.vaadin.flow.data.provider.ConfigurableFilterDataProvider;
+import com.vaadin.flow.data.renderer.TemplateRenderer;
 import com.vaadin.flow.data.value.ValueChangeMode;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.flow.shared.Registration;
 
-import java.text.DecimalFormat;
-import java.time.LocalDate;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Product List View
@@ -34,31 +39,37 @@ import java.util.Locale;
 @Route(value = "list", layout = MainLayout.class)
 public class MyProductsView extends VerticalLayout {
 
-    private final ProductCacheService productCacheService;
     private final ProductDetailForm productDetailForm;
     private final ProductService productService;
-    Grid<Product> grid = new Grid<>();
+    private final ProductAsyncService productAsyncService;
+    private final ProductChangeBroadcaster productChangeBroadcaster;
+    private final ProductThumbnailService productThumbnailService;
+    private Registration broadcasterRegistration;
+    // Product of the selected row being loaded, replaced by the next selection
+    private CompletableFuture<Product> selectedProductLoad;
+    Grid<ProductRow> grid = new Grid<>();
     TextField filterText = new TextField();
-    List<Product> sortList;
-    ListDataProvider<Product> listDataProvider;
+    ConfigurableFilterDataProvider<ProductRow, Void, String> productDataProvider;
 
     /**
      * Constructor for MyProductsView class
      *
      * @author tailam
      */
-    public MyProductsView(ProductCacheService productCacheService, ProductService productService) {
-        this.productCacheService = productCacheService;
+    public MyProductsView(ProductService productService, ProductAsyncService productAsyncService,
+                          ProductChangeBroadcaster productChangeBroadcaster,
+                          ProductThumbnailService productThumbnailService) {
         this.productService = productService;
-        sortList = productCacheService.findAllProductCache();
-        sortList.sort(new SortDataValue());
-        listDataProvider = DataProvider.ofCollection(sortList);
+        this.productAsyncService = productAsyncService;
+        this.productChangeBroadcaster = productChangeBroadcaster;
+        this.productThumbnailService = productThumbnailService;
+        productDataProvider = new ProductDataProvider(productService).withConfigurableFilter();
 
         addClassName("my-products-view");
         setSizeFull();
         configureGrid();
 
-        productDetailForm = new ProductDetailForm(productService.findAllProduct());
+        productDetailForm = new ProductDetailForm();
         productDetailForm.addListener(ProductDetailForm.SaveEvent.class, this::updateProduct);
         productDetailForm.addListener(ProductDetailForm.DeleteEvent.class, this::deleteProduct);
         productDetailForm.addListener(ProductDetailForm.CloseEvent.class, e -> closeEditor());
@@ -74,6 +85,36 @@ public class MyProductsView extends VerticalLayout {
         closeEditor();
     }
 
+    @Override
+    protected void onAttach(AttachEvent attachEvent) {
+        super.onAttach(attachEvent);
+        broadcasterRegistration = productChangeBroadcaster.register(attachEvent.getUI(), this::applyChanges);
+    }
+
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        super.onDetach(detachEvent);
+        broadcasterRegistration.remove();
+        broadcasterRegistration = null;
+        if (selectedProductLoad != null) {
+            selectedProductLoad.cancel(true);
+            selectedProductLoad = null;
+        }
+    }
+
+    /**
+     * Apply product changes pushed from other users
+     *
+     * @author tailam
+     */
+    private void applyChanges(ProductChangeBroadcaster.Changes changes) {
+        if (changes.isStructural()) {
+            productDataProvider.refreshAll();
+            return;
+        }
+        changes.getChanges().forEach(change -> productDataProvider.refreshItem(ProductRow.of(change.getProduct())));
+    }
+
     /**
      * Get grid to contain product list
      *
@@ -82,29 +123,63 @@ public class MyProductsView extends VerticalLayout {
     private void configureGrid() {
         grid.addClassName("contact-grid");
         grid.setSizeFull();
-        grid.setItems(sortList);
-        grid.addColumn(Product::getProductName, "productName").setHeader("Product Name");
-        grid.addColumn(
-                productCode -> productCode.getProductCode().toUpperCase()
-                , "productCode").setHeader("Product Code");
-        grid.addColumn(
-                releaseDate -> {
-                    LocalDate localDate = LocalDate.ofInstant(releaseDate.getReleaseDate().toInstant(),
-                            ZoneId.systemDefault());
-                    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy");
-                    return localDate.format(formatter);
-                }, "releaseDate").setHeader("Release Date");
-        grid.addColumn(new NumberRenderer<>(Product::getPrice,
-                "$%(,.2f",
-                Locale.US, "$0.00"), "price").setHeader("Price");
-        grid.addColumn(new NumberRenderer<>(Product::getStarRating,
-                new DecimalFormat("#.##")), "starRating").setHeader("Rating");
-        grid.addColumn(Product::getImageUrl, "imageUrl").setHeader("Image");
+        // Display strings are formatted once per row in ProductRow, not per cell render
+        grid.addColumn(ProductRow::getProductName, "productName").setHeader("Product Name");
+        grid.addColumn(ProductRow::getProductCode, "productCode").setHeader("Product Code");
+        grid.addColumn(ProductRow::getReleaseDate, "releaseDate").setHeader("Release Date");
+        grid.addColumn(ProductRow::getPrice, "price").setHeader("Price");
+        grid.addColumn(ProductRow::getStarRating, "starRating").setHeader("Rating");
+        // Versioned thumbnail URLs are cached by the browser, scrolling back never re-sends the bytes
+        grid.addColumn(TemplateRenderer.<ProductRow>of("<img src='[[item.thumbnail]]' alt='[[item.imageUrl]]'"
+                        + " hidden$='[[!item.thumbnail]]' width='32' height='32' loading='lazy'>")
+                .withProperty("thumbnail", row -> productThumbnailService.getThumbnailUrl(row.getImageUrl()))
+                .withProperty("imageUrl", ProductRow::getImageUrl))
+                .setHeader("Image").setSortProperty("imageUrl");
         grid.setColumnReorderingAllowed(true);
-        grid.setDataProvider(listDataProvider);
+        grid.setDataProvider(productDataProvider);
         grid.getColumns().forEach(col -> col.setAutoWidth(true));
 //        grid.addItemDoubleClickListener(event -> editProduct(event.getItem()));
-        grid.asSingleSelect().addValueChangeListener(evt -> editProduct(evt.getValue()));
+        grid.asSingleSelect().addValueChangeListener(evt -> selectProduct(evt.getValue()));
+    }
+
+    /**
+     * Load the selected product off the request thread and open it in the form when it arrives.
+     * Only the latest selection is applied, an earlier load still running is cancelled.
+     *
+     * @author tailam
+     */
+    private void selectProduct(ProductRow row) {
+        if (selectedProductLoad != null) {
+            selectedProductLoad.cancel(true);
+            selectedProductLoad = null;
+        }
+        if (row == null) {
+            editProduct(null);
+            return;
+        }
+        UI ui = UI.getCurrent();
+        CompletableFuture<Product> load = productAsyncService.findProduct(row.getProductId());
+        selectedProductLoad = load;
+        load.whenComplete((product, error) -> {
+            if (load.isCancelled()) {
+                return;
+            }
+            ui.access(() -> {
+                if (selectedProductLoad != load) {
+                    return;
+                }
+                selectedProductLoad = null;
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof ProductNotFoundException) {
+                    Notification.show("This product was deleted by someone else");
+                    productDataProvider.refreshAll();
+                } else if (cause != null) {
+                    Notification.show("Could not load the product, please try again");
+                } else {
+                    editProduct(product);
+                }
+            });
+        });
     }
 
     /**
@@ -115,6 +190,7 @@ public class MyProductsView extends VerticalLayout {
     private HorizontalLayout getConfigFilter() {
         filterText.setPlaceholder("Looking for...");
         filterText.setClearButtonVisible(true);
+        filterText.setHelperText("Ranges: price:10..50 rating:4.. released:2021-01-01..2021-12-31");
         Icon icon = VaadinIcon.SEARCH.create();
         filterText.setPrefixComponent(icon);
         filterText.setValueChangeMode(ValueChangeMode.LAZY);
@@ -147,8 +223,7 @@ public class MyProductsView extends VerticalLayout {
      */
     private void deleteProduct(ProductDetailForm.DeleteEvent evt) {
         productService.deleteProduct(evt.getProduct());
-        productCacheService.deleteProductCache(evt.getProduct());
-        listDataProvider.getItems().remove(evt.getProduct());
+        productDataProvider.refreshAll();
         closeEditor();
     }
 
@@ -158,9 +233,22 @@ public class MyProductsView extends VerticalLayout {
      * @author tailam
      */
     private void updateProduct(ProductDetailForm.SaveEvent evt) {
-        productService.updateProduct(evt.getProduct());
-        productCacheService.updateProductCache(evt.getProduct());
-        listDataProvider.refreshItem(evt.getProduct());
+        Product saved;
+        try {
+            saved = productService.updateProduct(evt.getOriginal(), evt.getProduct());
+        } catch (ProductConflictException e) {
+            try {
+                Product latest = productService.findProduct(e.getProductId());
+                productDataProvider.refreshItem(ProductRow.of(latest));
+                productDetailForm.showConflict(latest);
+            } catch (ProductNotFoundException deleted) {
+                Notification.show("This product was deleted by someone else");
+                productDataProvider.refreshAll();
+                closeEditor();
+            }
+            return;
+        }
+        productDataProvider.refreshItem(ProductRow.of(saved));
         closeEditor();
     }
 
@@ -173,7 +261,6 @@ public class MyProductsView extends VerticalLayout {
         productDetailForm.setProduct(null);
         productDetailForm.setVisible(false);
         removeClassName("editing");
-        grid.getDataProvider().refreshAll();
     }
 
     /**
@@ -183,7 +270,7 @@ public class MyProductsView extends VerticalLayout {
      */
     private void saveNewProduct(CreateProductForm.SaveEvent evt) {
         productService.save(evt.getProduct());
-        listDataProvider.refreshAll();
+        productDataProvider.refreshAll();
     }
 
     /**
@@ -192,17 +279,7 @@ public class MyProductsView extends VerticalLayout {
      * @author tailam
      */
     public void filterList() {
-        if (filterText.getValue() != null) {
-            listDataProvider.setFilter(product ->
-                    product.getProductName().toLowerCase().contains(filterText.getValue().toLowerCase()) ||
-                            product.getProductCode().toLowerCase().contains(filterText.getValue().toLowerCase()) ||
-                            product.getDescription().toLowerCase().contains(filterText.getValue().toLowerCase()) ||
-                            product.getReleaseDate().toString().contains(filterText.getValue()) ||
-                            product.getPrice().toString().contains(filterText.getValue()) ||
-                            product.getStarRating().toString().contains(filterText.getValue()) ||
-                            product.getImageUrl().toLowerCase().contains(filterText.getValue().toLowerCase()));
-        } else {
-            listDataProvider.clearFilters();
-        }
+        String filter = filterText.getValue();
+        productDataProvider.setFilter(filter == null || filter.isBlank() ? null : filter);
     }
 }
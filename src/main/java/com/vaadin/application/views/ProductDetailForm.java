@@ -1,6 +1,7 @@
 package com.vaadin.application.views;
 
 import com.vaadin.application.model.Product;
+import com.vaadin.application.model.ProductValidator;
 import com.vaadin.flow.component.ComponentEvent;
 import com.vaadin.flow.component.ComponentEventListener;
 import com.vaadin.flow.component.Key;
@@ -12,6 +13,8 @@ import com.vaadin.flow.component.formlayout.FormLayout;
 import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.icon.Icon;
 import com.vaadin.flow.component.icon.VaadinIcon;
+import com.vaadin.flow.component.notification.Notification;
+import com.vaadin.flow.component.notification.NotificationVariant;
 import com.vaadin.flow.component.orderedlayout.FlexComponent;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
@@ -27,7 +30,6 @@ import com.vaadin.flow.shared.Registration;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.Date;
-import java.util.List;
 
 /**
  * Product Detail Form
@@ -50,13 +52,15 @@ public class ProductDetailForm extends FormLayout {
 
     Binder<Product> binderProduct = new BeanValidationBinder<>(Product.class);
     private Product product;
+    // Product as it was read, the save only writes the fields changed since
+    private Product original;
 
     /**
      * Constructor for ProductDetailForm class
      *
      * @author tailam
      */
-    public ProductDetailForm(List<Product> products) {
+    public ProductDetailForm() {
         addClassName("contact-form");
         validateProductDetailForm();
         binderProduct.bindInstanceFields(this);
@@ -119,33 +123,18 @@ public class ProductDetailForm extends FormLayout {
     private void validateProductDetailForm() {
         NumberFormat number = new DecimalFormat("##,###.00");
         binderProduct.forField(productName).asRequired("*Required")
-                .withValidator(
-                        productName -> !productName.isBlank() && !productName.isEmpty(),
-                        "*Must have content")
-                .withValidator(
-                        name -> name.length() >= 3,
-                        "*Name must contain at least 3 characters")
+                .withValidator(ProductValidator::hasContent, ProductValidator.MUST_HAVE_CONTENT)
+                .withValidator(ProductValidator::isValidName, ProductValidator.NAME_MESSAGE)
                 .bind(Product::getProductName, Product::setProductName);
         binderProduct.forField(productCode).asRequired("*Required")
-                .withValidator(
-                        productCode -> !productCode.isBlank() && !productCode.isEmpty(),
-                        "*Must have content")
-                .withValidator(
-                        productCode -> productCode.length() >= 6 && productCode.contains("-"),
-                        "*Code must contain at least 6 characters with correction format \n" +
-                                "*Example: ABC-1234"
-                )
+                .withValidator(ProductValidator::hasContent, ProductValidator.MUST_HAVE_CONTENT)
+                .withValidator(ProductValidator::isValidCode, ProductValidator.CODE_MESSAGE)
                 .bind(Product::getProductCode, Product::setProductCode);
         binderProduct.forField(description).asRequired("*Required")
-                .withValidator(
-                        description -> !description.isBlank() && !description.isEmpty(),
-                        "*Must have content")
-                .withValidator(
-                        description -> description.length() <= 50,
-                        "*Description have maximum with 50 characters"
-                )
+                .withValidator(ProductValidator::hasContent, ProductValidator.MUST_HAVE_CONTENT)
+                .withValidator(ProductValidator::isValidDescription, ProductValidator.DESCRIPTION_MESSAGE)
                 .bind(Product::getDescription, Product::setDescription);
-        binderProduct.forField(releaseDate).asRequired("*Please choose a date by button")
+        binderProduct.forField(releaseDate).asRequired(ProductValidator.RELEASE_DATE_MESSAGE)
                 .withConverter(new LocalDateToDateConverter())
                 .withValidator(
                         releaseDate -> !releaseDate.toString().isBlank() && !releaseDate.toString().isEmpty(),
@@ -158,9 +147,8 @@ public class ProductDetailForm extends FormLayout {
                         "*Must have content by number"
                 )
                 .withValidator(
-                        price -> Float.parseFloat(price.replace(",", "")) >= 1.00F &&
-                                Float.parseFloat(price.replace(",", "")) <= 10000.00F,
-                        "*Price must be between 1 and 10000 \n with correction format: ##,###.##"
+                        price -> ProductValidator.isValidPrice(Float.parseFloat(price.replace(",", ""))),
+                        ProductValidator.PRICE_MESSAGE
                 )
                 .withConverter(new StringToFloatConverter("Must be a number"))
                 .bind(Product::getPrice, Product::setPrice);
@@ -170,20 +158,14 @@ public class ProductDetailForm extends FormLayout {
                         "*Must have content with number"
                 )
                 .withValidator(
-                        starRating -> Float.parseFloat(starRating) >= 1.00F &&
-                                Float.parseFloat(starRating) <= 5.00F,
-                        "*Star Rating must be between 1 and 5 \n with correction format: #.##"
+                        starRating -> ProductValidator.isValidStarRating(Float.parseFloat(starRating)),
+                        ProductValidator.STAR_RATING_MESSAGE
                 )
                 .withConverter(new StringToFloatConverter("Must be a number"))
                 .bind(Product::getStarRating, Product::setStarRating);
         binderProduct.forField(imageUrl).asRequired("*Required")
-                .withValidator(
-                        imageUrl -> !imageUrl.isBlank() && !imageUrl.isEmpty(),
-                        "*Must have content")
-                .withValidator(
-                        imageUrl -> imageUrl.contains(".png"),
-                        "*Must be .PNG file"
-                )
+                .withValidator(ProductValidator::hasContent, ProductValidator.MUST_HAVE_CONTENT)
+                .withValidator(ProductValidator::isValidImageUrl, ProductValidator.IMAGE_URL_MESSAGE)
                 .bind(Product::getImageUrl, Product::setImageUrl);
     }
 
@@ -194,6 +176,7 @@ public class ProductDetailForm extends FormLayout {
      */
     public void setProduct(Product product) {
         this.product = product;
+        this.original = product == null ? null : new Product(product);
         if (product != null && product.getProductId() != null) {
             binderProduct.readBean(product);
         } else {
@@ -202,6 +185,18 @@ public class ProductDetailForm extends FormLayout {
         }
     }
 
+    /**
+     * Show that the product was changed by someone else, the form is reloaded with the latest values
+     *
+     * @author tailam
+     */
+    public void showConflict(Product latest) {
+        Notification notification = Notification.show(
+                "This product was changed by someone else, please review the latest values and save again");
+        notification.addThemeVariants(NotificationVariant.LUMO_ERROR);
+        setProduct(latest);
+    }
+
     /**
      * Button Save Product
      *
@@ -228,7 +223,7 @@ public class ProductDetailForm extends FormLayout {
         if (binderProduct.isValid()) {
             try {
                 binderProduct.writeBean(product);
-                fireEvent(new SaveEvent(this, product));
+                fireEvent(new SaveEvent(this, original, product));
             } catch (ValidationException e) {
                 e.printStackTrace();
             }
@@ -285,8 +280,15 @@ public class ProductDetailForm extends FormLayout {
      * @author tailam
      */
     public static class SaveEvent extends ProductDetailFormEvent {
-        SaveEvent(ProductDetailForm source, Product product) {
+        private final Product original;
+
+        SaveEvent(ProductDetailForm source, Product original, Product product) {
             super(source, product);
+            this.original = original;
+        }
+
+        public Product getOriginal() {
+            return original;
         }
     }
 
@@ -0,0 +1,49 @@
+-- Change data capture trigger of demo_db.sql for the embedded H2 database of the perf profile, run by
+-- CatalogSeeder after seeding: seeded rows are not changes and would only fill product_change_log.
+
+-- H2 triggers are Java: this source is compiled by H2 when the database opens, so the perf profile needs a JDK.
+-- It logs every insert, update and delete of a product in the writing transaction. The H2 source compiler keeps
+-- a single class, the trigger is a proxy over a lambda rather than an anonymous class.
+CREATE TRIGGER IF NOT EXISTS product_change_trg AFTER INSERT, UPDATE, DELETE ON product FOR EACH ROW AS '
+org.h2.api.Trigger create() {
+    // Positions of product_id and version in a row, found when the trigger is initialized
+    int[] columns = new int[2];
+    return (org.h2.api.Trigger) java.lang.reflect.Proxy.newProxyInstance(org.h2.api.Trigger.class.getClassLoader(),
+            new Class<?>[] {org.h2.api.Trigger.class}, (proxy, method, args) -> {
+        switch (method.getName()) {
+            case "init":
+                try (ResultSet rs = ((Connection) args[0]).getMetaData()
+                        .getColumns(null, (String) args[1], (String) args[3], null)) {
+                    while (rs.next()) {
+                        if ("PRODUCT_ID".equals(rs.getString("COLUMN_NAME"))) {
+                            columns[0] = rs.getInt("ORDINAL_POSITION") - 1;
+                        } else if ("VERSION".equals(rs.getString("COLUMN_NAME"))) {
+                            columns[1] = rs.getInt("ORDINAL_POSITION") - 1;
+                        }
+                    }
+                }
+                return null;
+            case "fire":
+                Object[] oldRow = (Object[]) args[1];
+                Object[] newRow = (Object[]) args[2];
+                Object[] row = newRow != null ? newRow : oldRow;
+                try (PreparedStatement statement = ((Connection) args[0]).prepareStatement(
+                        "INSERT INTO product_change_log (change_id, product_id, operation, version)"
+                                + " VALUES (NEXT VALUE FOR product_change_seq, ?, ?, ?)")) {
+                    statement.setObject(1, row[columns[0]]);
+                    statement.setString(2, oldRow == null ? "I" : newRow == null ? "D" : "U");
+                    statement.setObject(3, row[columns[1]]);
+                    statement.executeUpdate();
+                }
+                return null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "product_change_trg";
+            default:
+                return null;
+        }
+    });
+}';
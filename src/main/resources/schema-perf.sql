@@ -0,0 +1,48 @@
+-- Schema of demo_db.sql for the embedded H2 database of the perf profile (Oracle compatibility mode),
+-- run at every start so it only creates what a file database does not have yet
+CREATE TABLE IF NOT EXISTS product (
+    product_id    NUMBER NOT NULL,
+    product_name  VARCHAR2(100) NOT NULL,
+    product_code  VARCHAR2(100),
+    release_date  DATE,
+    description   VARCHAR2(100),
+    price         NUMBER,
+    star_rating   NUMBER,
+    image_url     VARCHAR2(100),
+    version       NUMBER DEFAULT 0 NOT NULL,
+    PRIMARY KEY ( product_id )
+);
+
+-- Product id sequence, Hibernate allocates 50 ids per call (pooled-lo optimizer)
+CREATE SEQUENCE IF NOT EXISTS next_val START WITH 1 INCREMENT BY 50;
+
+-- H2 has no function based indexes, the name and code indexes of demo_db.sql are on the plain columns
+CREATE INDEX IF NOT EXISTS product_name_idx ON product ( product_name );
+
+CREATE INDEX IF NOT EXISTS product_code_idx ON product ( product_code );
+
+CREATE INDEX IF NOT EXISTS product_price_idx ON product ( price );
+
+CREATE INDEX IF NOT EXISTS product_star_rating_idx ON product ( star_rating );
+
+CREATE INDEX IF NOT EXISTS product_release_date_idx ON product ( release_date );
+
+-- Change data capture of demo_db.sql
+CREATE TABLE IF NOT EXISTS product_change_log (
+    change_id   NUMBER NOT NULL,
+    product_id  NUMBER NOT NULL,
+    operation   CHAR(1) NOT NULL,
+    version     NUMBER,
+    changed_at  TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    PRIMARY KEY ( change_id )
+);
+
+CREATE SEQUENCE IF NOT EXISTS product_change_seq START WITH 1 INCREMENT BY 1;
+
+CREATE INDEX IF NOT EXISTS product_change_changed_at_idx ON product_change_log ( changed_at );
+
+-- product_change_trg is created by CatalogSeeder from schema-perf-trigger.sql once the catalog is seeded
+
+-- Oracle dictionary view read by ProductChangePoller to check that the trigger exists
+CREATE VIEW IF NOT EXISTS user_triggers AS
+    SELECT trigger_name, table_name, 'ENABLED' AS status FROM information_schema.triggers;
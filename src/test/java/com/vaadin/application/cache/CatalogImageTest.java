@@ -0,0 +1,134 @@
+package com.vaadin.application.cache;
+
+import com.vaadin.application.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static com.vaadin.application.cache.ProductCodecTest.assertProduct;
+import static com.vaadin.application.cache.ProductCodecTest.midnight;
+import static com.vaadin.application.cache.ProductCodecTest.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Round trips of the catalog image file and rejection of damaged or foreign images
+ *
+ * @author tailam
+ */
+class CatalogImageTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsSnapshot() throws IOException {
+        Product nulls = new Product();
+        nulls.setProductId(3);
+        Product withTime = product(1000, new Date(midnight(2021, 3, 14).getTime() + 1), "assets/images/saw.png");
+        Product withDay = product(1, midnight(2021, 3, 14), "assets/images/saw.png");
+        withDay.setVersion(4);
+        CatalogSnapshot snapshot = CatalogSnapshot.of(12, 3456, Arrays.asList(withTime, nulls, withDay));
+        Path file = directory.resolve("catalog.img");
+
+        CatalogImage.write(file, snapshot, "marker-1");
+        CatalogImage image = CatalogImage.read(file);
+
+        assertEquals("marker-1", image.getMarker());
+        assertSnapshot(snapshot, image.getSnapshot());
+    }
+
+    @Test
+    void roundTripsNullMarkerAndEmptySnapshot() throws IOException {
+        CatalogSnapshot snapshot = CatalogSnapshot.of(1, 2, List.of());
+        Path file = directory.resolve("catalog.img");
+
+        CatalogImage.write(file, snapshot, null);
+        CatalogImage image = CatalogImage.read(file);
+
+        assertNull(image.getMarker());
+        assertSnapshot(snapshot, image.getSnapshot());
+    }
+
+    @Test
+    void writesImageUrlsInlineOnceDictionaryIsFull() throws IOException {
+        List<Product> products = new ArrayList<>();
+        for (int i = 1; i <= 4100; i++) {
+            products.add(product(i, null, "assets/images/" + i + ".png"));
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.of(1, 2, products);
+        Path file = directory.resolve("catalog.img");
+
+        CatalogImage.write(file, snapshot, "marker");
+
+        assertSnapshot(snapshot, CatalogImage.read(file).getSnapshot());
+    }
+
+    @Test
+    void ignoresMissingImage() throws IOException {
+        assertNull(CatalogImage.read(directory.resolve("missing.img")));
+    }
+
+    @Test
+    void rejectsBadChecksum() throws IOException {
+        Path file = writeImage();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertNull(CatalogImage.read(file));
+    }
+
+    @Test
+    void rejectsTruncatedImage() throws IOException {
+        Path file = writeImage();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertNull(CatalogImage.read(file));
+    }
+
+    @Test
+    void rejectsOtherFormatVersion() throws IOException {
+        Path file = writeImage();
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(Integer.BYTES, CatalogImage.FORMAT_VERSION + 1);
+        Files.write(file, bytes);
+
+        assertNull(CatalogImage.read(file));
+    }
+
+    @Test
+    void rejectsOtherMagic() throws IOException {
+        Path file = writeImage();
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(0, CatalogImage.MAGIC + 1);
+        Files.write(file, bytes);
+
+        assertNull(CatalogImage.read(file));
+    }
+
+    private Path writeImage() throws IOException {
+        Path file = directory.resolve("catalog.img");
+        CatalogImage.write(file, CatalogSnapshot.of(1, 2,
+                Arrays.asList(product(1, null, "assets/images/saw.png"), product(2, null, null))), "marker");
+        return file;
+    }
+
+    private static void assertSnapshot(CatalogSnapshot expected, CatalogSnapshot actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getLoadedAt(), actual.getLoadedAt());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertProduct(expected.getProducts().get(i), actual.getProducts().get(i));
+        }
+    }
+}
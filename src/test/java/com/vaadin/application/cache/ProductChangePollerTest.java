@@ -0,0 +1,104 @@
+package com.vaadin.application.cache;
+
+import com.vaadin.application.model.ProductChange;
+import com.vaadin.application.repository.ProductChangeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Gap handling of the change log poller: ids committed out of order are applied late, ids that never
+ * show up are given up after the gap timeout and the caches resynchronized
+ *
+ * @author tailam
+ */
+class ProductChangePollerTest {
+
+    private final ProductChangeRepository productChangeRepository = mock(ProductChangeRepository.class);
+    private final ProductCacheManager productCacheManager = mock(ProductCacheManager.class);
+    private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+
+    @BeforeEach
+    void setUp() {
+        when(productChangeRepository.countChangeTriggers()).thenReturn(1L);
+        when(productChangeRepository.findLastChangeId()).thenReturn(0L);
+        when(productChangeRepository.findChangesAfter(anyLong(), any(Pageable.class))).thenReturn(List.of());
+        when(productChangeRepository.findChanges(anyCollection())).thenReturn(List.of());
+    }
+
+    @Test
+    void appliesChangeCommittedBehindLaterOne() {
+        ProductChangePoller poller = poller(60000);
+        when(productChangeRepository.findChangesAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(change(2, 20)));
+        when(productChangeRepository.findChanges(List.of(1L))).thenReturn(List.of()).thenReturn(List.of(change(1, 10)));
+
+        poller.poll();
+        poller.poll();
+        poller.poll();
+
+        verify(productCacheManager).applyChanges(Set.of(20));
+        verify(productCacheManager).applyChanges(Set.of(10));
+        verify(productCacheManager, never()).resync();
+        // Both ids are behind the watermark now, nothing is looked for again
+        verify(productChangeRepository, times(2)).findChanges(anyCollection());
+    }
+
+    @Test
+    void resyncsOnceMissingChangeTimesOut() {
+        ProductChangePoller poller = poller(0);
+        when(productChangeRepository.findChangesAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(change(2, 20)));
+
+        poller.poll();
+        verify(productCacheManager, never()).resync();
+
+        poller.poll();
+        verify(productCacheManager).resync();
+
+        // Given up, change 1 is no longer looked for and the caches are not resynchronized again
+        poller.poll();
+        verify(productCacheManager).resync();
+        verify(productChangeRepository).findChanges(List.of(1L));
+    }
+
+    @Test
+    void waitsForMissingChangeUntilTimeout() {
+        ProductChangePoller poller = poller(60000);
+        when(productChangeRepository.findChangesAfter(eq(0L), any(Pageable.class))).thenReturn(List.of(change(2, 20)));
+
+        poller.poll();
+        poller.poll();
+        poller.poll();
+
+        verify(productCacheManager, never()).resync();
+        verify(productChangeRepository, times(2)).findChanges(List.of(1L));
+    }
+
+    private ProductChangePoller poller(long gapTimeoutMillis) {
+        ProductChangePoller poller = new ProductChangePoller(productChangeRepository, productCacheManager,
+                taskScheduler, 1000, 500, gapTimeoutMillis, 24, 3600);
+        poller.start();
+        return poller;
+    }
+
+    private static ProductChange change(long changeId, int productId) {
+        ProductChange change = new ProductChange();
+        ReflectionTestUtils.setField(change, "changeId", changeId);
+        ReflectionTestUtils.setField(change, "productId", productId);
+        return change;
+    }
+}
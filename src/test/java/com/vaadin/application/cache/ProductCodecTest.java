@@ -0,0 +1,175 @@
+package com.vaadin.application.cache;
+
+import com.vaadin.application.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Round trips of the field ordered product encoding
+ *
+ * @author tailam
+ */
+class ProductCodecTest {
+
+    @Test
+    void roundTripsAllFields() throws IOException {
+        Product product = product(42, midnight(2021, 3, 14), "assets/images/saw.png");
+        product.setVersion(7);
+
+        Product read = roundTrip(product, 0, ProductCodec.NO_DICTIONARY);
+
+        assertProduct(product, read);
+    }
+
+    @Test
+    void roundTripsNullFields() throws IOException {
+        Product read = roundTrip(new Product(), 0, ProductCodec.NO_DICTIONARY);
+
+        assertNull(read.getProductId());
+        assertNull(read.getVersion());
+        assertNull(read.getReleaseDate());
+        assertNull(read.getPrice());
+        assertNull(read.getStarRating());
+        assertNull(read.getProductName());
+        assertNull(read.getProductCode());
+        assertNull(read.getDescription());
+        assertNull(read.getImageUrl());
+    }
+
+    @Test
+    void keepsTimeOfDayOfReleaseDate() throws IOException {
+        Date releaseDate = new Date(midnight(2021, 3, 14).getTime() + 12345678);
+        Product product = product(1, releaseDate, null);
+
+        Product read = roundTrip(product, 0, ProductCodec.NO_DICTIONARY);
+
+        assertEquals(releaseDate.getTime(), read.getReleaseDate().getTime());
+    }
+
+    @Test
+    void encodesReleaseDayShorterThanMillis() throws IOException {
+        Date day = midnight(2021, 3, 14);
+
+        int dayLength = encode(product(1, day, null), 0, ProductCodec.NO_DICTIONARY).length;
+        int millisLength = encode(product(1, new Date(day.getTime() + 1), null), 0, ProductCodec.NO_DICTIONARY).length;
+
+        assertEquals(Long.BYTES - 3, millisLength - dayLength);
+    }
+
+    @Test
+    void roundTripsIdBelowBaseId() throws IOException {
+        Product product = product(5, null, null);
+
+        assertEquals(5, roundTrip(product, 1000, ProductCodec.NO_DICTIONARY).getProductId());
+        assertEquals(Integer.MAX_VALUE,
+                roundTrip(product(Integer.MAX_VALUE, null, null), 0, ProductCodec.NO_DICTIONARY).getProductId());
+    }
+
+    @Test
+    void writesDictionaryIndexOfImageUrl() throws IOException {
+        ListDictionary dictionary = new ListDictionary();
+        Product product = product(1, null, "assets/images/saw.png");
+
+        Product read = roundTrip(product, 0, dictionary);
+
+        assertEquals(List.of("assets/images/saw.png"), dictionary.values);
+        assertEquals("assets/images/saw.png", read.getImageUrl());
+    }
+
+    @Test
+    void readsStringsFromBufferWithoutArray() throws IOException {
+        byte[] bytes = encode(product(3, null, "assets/images/\u00e9t\u00e9.png"), 0, ProductCodec.NO_DICTIONARY);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+        Product read = ProductCodec.read(direct, 0, ProductCodec.NO_DICTIONARY);
+
+        assertFalse(direct.hasRemaining());
+        assertEquals("assets/images/\u00e9t\u00e9.png", read.getImageUrl());
+    }
+
+    @Test
+    void roundTripsVarLongs() throws IOException {
+        long[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, 0xFFFFFFFFL, Long.MAX_VALUE, -1};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (long value : values) {
+                ProductCodec.writeVarLong(out, value);
+            }
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        for (long value : values) {
+            assertEquals(value, ProductCodec.readVarLong(in));
+        }
+        assertFalse(in.hasRemaining());
+    }
+
+    static Product product(Integer productId, Date releaseDate, String imageUrl) {
+        return new Product(productId, "Product " + productId, "P-" + productId, releaseDate,
+                "Description of " + productId, 19.99f, 3.5f, imageUrl);
+    }
+
+    static Date midnight(int year, int month, int day) {
+        return Date.from(LocalDate.of(year, month, day).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    static void assertProduct(Product expected, Product actual) {
+        assertEquals(expected.getProductId(), actual.getProductId());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getReleaseDate() == null ? null : expected.getReleaseDate().getTime(),
+                actual.getReleaseDate() == null ? null : actual.getReleaseDate().getTime());
+        assertEquals(expected.getPrice(), actual.getPrice());
+        assertEquals(expected.getStarRating(), actual.getStarRating());
+        assertEquals(expected.getProductName(), actual.getProductName());
+        assertEquals(expected.getProductCode(), actual.getProductCode());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(expected.getImageUrl(), actual.getImageUrl());
+    }
+
+    private static Product roundTrip(Product product, int baseId, ProductCodec.Dictionary dictionary)
+            throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(encode(product, baseId, dictionary));
+        Product read = ProductCodec.read(in, baseId, dictionary);
+        assertFalse(in.hasRemaining());
+        return read;
+    }
+
+    private static byte[] encode(Product product, int baseId, ProductCodec.Dictionary dictionary)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            ProductCodec.write(out, product, baseId, dictionary);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static final class ListDictionary implements ProductCodec.Dictionary {
+
+        private final List<String> values = new ArrayList<>();
+
+        @Override
+        public int indexOf(String value) {
+            if (!values.contains(value)) {
+                values.add(value);
+            }
+            return values.indexOf(value);
+        }
+
+        @Override
+        public String get(int index) {
+            return values.get(index);
+        }
+    }
+}
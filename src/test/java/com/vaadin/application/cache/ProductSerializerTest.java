@@ -0,0 +1,139 @@
+package com.vaadin.application.cache;
+
+import com.vaadin.application.model.Product;
+import org.ehcache.impl.serialization.CompactJavaSerializer;
+import org.ehcache.impl.serialization.TransientStateRepository;
+import org.ehcache.spi.serialization.SerializerException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static com.vaadin.application.cache.ProductCodecTest.assertProduct;
+import static com.vaadin.application.cache.ProductCodecTest.midnight;
+import static com.vaadin.application.cache.ProductCodecTest.product;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Round trips of the ehcache product serializer, its string dictionary and entries of the legacy format
+ *
+ * @author tailam
+ */
+class ProductSerializerTest {
+
+    private final ClassLoader classLoader = getClass().getClassLoader();
+    private TransientStateRepository stateRepository;
+    private ProductSerializer serializer;
+
+    @BeforeEach
+    void setUp() {
+        stateRepository = new TransientStateRepository();
+        serializer = new ProductSerializer(classLoader);
+        serializer.init(stateRepository);
+    }
+
+    @Test
+    void roundTripsProduct() throws Exception {
+        Product product = product(42, midnight(2021, 3, 14), "assets/images/saw.png");
+        product.setVersion(3);
+
+        ByteBuffer binary = serializer.serialize(product);
+
+        assertEquals(ProductSerializer.FORMAT_VERSION, binary.get(0));
+        assertProduct(product, serializer.read(binary));
+    }
+
+    @Test
+    void roundTripsNullFields() throws Exception {
+        Product product = new Product();
+
+        assertProduct(product, serializer.read(serializer.serialize(product)));
+    }
+
+    @Test
+    void roundTripsReleaseDateWithTimeOfDay() throws Exception {
+        Product product = product(1, new Date(midnight(2021, 3, 14).getTime() + 1), null);
+
+        assertProduct(product, serializer.read(serializer.serialize(product)));
+    }
+
+    @Test
+    void writesImageUrlsInlineOnceDictionaryIsFull() throws Exception {
+        List<Product> products = new ArrayList<>();
+        List<ByteBuffer> binaries = new ArrayList<>();
+        for (int i = 0; i < 4100; i++) {
+            Product product = product(i, null, "assets/images/" + i + ".png");
+            products.add(product);
+            binaries.add(serializer.serialize(product));
+        }
+        ProductSerializer restarted = new ProductSerializer(classLoader);
+        restarted.init(stateRepository);
+
+        for (int i = 0; i < products.size(); i++) {
+            assertProduct(products.get(i), serializer.read(binaries.get(i).duplicate()));
+            assertProduct(products.get(i), restarted.read(binaries.get(i).duplicate()));
+        }
+        assertTrue(binaries.get(4099).remaining() > binaries.get(0).remaining());
+    }
+
+    @Test
+    void readsLegacyJavaSerializedEntries() throws Exception {
+        CompactJavaSerializer<Product> legacy = new CompactJavaSerializer<>(classLoader);
+        legacy.init(stateRepository);
+        Product product = product(7, midnight(2020, 1, 1), "assets/images/saw.png");
+
+        ByteBuffer binary = legacy.serialize(product);
+
+        assertEquals((byte) 0xAC, binary.get(0));
+        assertProduct(product, serializer.read(binary.duplicate()));
+        assertTrue(serializer.equals(product, binary));
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        ByteBuffer binary = ByteBuffer.wrap(new byte[]{(byte) (ProductSerializer.FORMAT_VERSION + 1), 0});
+
+        assertThrows(SerializerException.class, () -> serializer.read(binary));
+    }
+
+    @Test
+    void rejectsTruncatedEntry() throws Exception {
+        ByteBuffer binary = serializer.serialize(product(1, null, null));
+        binary.limit(binary.limit() - 1);
+
+        assertThrows(SerializerException.class, () -> serializer.read(binary));
+    }
+
+    @Test
+    void comparesDecodedFields() throws Exception {
+        Product product = product(9, midnight(2021, 3, 14), "assets/images/saw.png");
+        ByteBuffer binary = serializer.serialize(product);
+
+        Product loaded = new Product(product);
+        loaded.setReleaseDate(new Timestamp(product.getReleaseDate().getTime()));
+        Product changed = new Product(product);
+        changed.setPrice(20f);
+
+        assertTrue(serializer.equals(loaded, binary));
+        assertFalse(serializer.equals(changed, binary));
+        assertEquals(0, binary.position());
+    }
+
+    @Test
+    void comparesEntryWrittenWithoutDictionary() throws Exception {
+        Product product = product(9, null, "assets/images/saw.png");
+        ProductSerializer uninitialized = new ProductSerializer(classLoader);
+
+        ByteBuffer inline = uninitialized.serialize(product);
+
+        assertFalse(inline.equals(serializer.serialize(product)));
+        assertTrue(serializer.equals(product, inline));
+    }
+}
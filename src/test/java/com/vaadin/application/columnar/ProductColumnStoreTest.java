@@ -0,0 +1,83 @@
+package com.vaadin.application.columnar;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.repository.ProductFilter;
+import com.vaadin.application.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Range filters and sorts of the columnar store and changes published while it is rebuilt
+ *
+ * @author tailam
+ */
+class ProductColumnStoreTest {
+
+    private static final ProductFilter ALL = ProductFilter.parse(null);
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductColumnStore store = new ProductColumnStore(productRepository);
+
+    @Test
+    void filtersRangesAndSortsWithMissingValuesLast() {
+        store.onCatalogRestored(List.of(product(1, "Saw", 30f), product(2, "Axe", null), product(3, "Drill", 120f),
+                product(4, null, 75f)));
+
+        assertArrayEquals(new int[]{1, 4, 3, 2}, store.query(ALL, "price", true));
+        assertArrayEquals(new int[]{3, 4, 1, 2}, store.query(ALL, "price", false));
+        assertArrayEquals(new int[]{2, 3, 1, 4}, store.query(ALL, "productName", true));
+        assertArrayEquals(new int[]{4, 3}, store.query(ProductFilter.parse("price:50.."), "productId", false));
+        assertEquals(2, store.count(ProductFilter.parse("price:..80")));
+    }
+
+    @Test
+    void sortsNamesLikeStringCompareTo() {
+        // U+FF5E is before U+1F600 in UTF-8, but its UTF-16 unit is after the surrogate of U+1F600
+        List<Product> products = List.of(product(1, "\uFF5Ewave", 1f), product(2, "\uD83D\uDE00smile", 1f),
+                product(3, "\u00e9t\u00e9", 1f), product(4, "Zebra", 1f), product(5, "apple", 1f));
+        store.onCatalogRestored(products);
+
+        List<Product> expected = new ArrayList<>(products);
+        expected.sort(Comparator.comparing(Product::getProductName));
+
+        assertArrayEquals(expected.stream().mapToInt(Product::getProductId).toArray(),
+                store.query(ALL, "productName", true));
+    }
+
+    @Test
+    void keepsChangesPublishedDuringRebuild() {
+        // The page was read before product 2 was repriced, product 3 deleted and product 4 added
+        List<Product> stalePage = List.of(product(1, "Saw", 30f), product(2, "Axe", 40f), product(3, "Drill", 120f));
+        when(productRepository.findPageAfter(eq(0), any(Pageable.class))).thenAnswer(invocation -> {
+            assertFalse(store.isReady());
+            store.onProductSaved(stalePage.get(1), product(2, "Axe", 400f));
+            store.onProductDeleted(stalePage.get(2));
+            store.onProductSaved(null, product(4, "Rake", 10f));
+            return stalePage;
+        });
+
+        store.rebuild();
+
+        assertTrue(store.isReady());
+        assertEquals(3, store.size());
+        assertArrayEquals(new int[]{4, 1, 2}, store.query(ALL, "price", true));
+        assertArrayEquals(new int[]{2}, store.query(ProductFilter.parse("price:100.."), "productId", true));
+    }
+
+    private static Product product(Integer productId, String productName, Float price) {
+        return new Product(productId, productName, "P-" + productId, null, null, price, null, null);
+    }
+}
@@ -0,0 +1,94 @@
+package com.vaadin.application.search;
+
+import com.vaadin.application.model.Product;
+import com.vaadin.application.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Trigram search of the product index and changes published while it is rebuilt
+ *
+ * @author tailam
+ */
+class ProductSearchIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductSearchIndex index = new ProductSearchIndex(productRepository);
+
+    @Test
+    void findsSubstringsInAnyField() {
+        index.onCatalogRestored(List.of(product(1, "Hammer", "GDN-0011"), product(2, "Garden Cart", "GDN-0023"),
+                product(3, "Saw", "TBX-0022")));
+
+        assertTrue(index.isReady());
+        assertArrayEquals(new int[]{1, 2}, index.search("GDN"));
+        assertArrayEquals(new int[]{2}, index.search(" cart "));
+        assertArrayEquals(new int[]{1}, index.search("hamm"));
+        assertArrayEquals(new int[]{3}, index.search("sa"));
+        // Every trigram is in product 2, but not next to each other
+        assertArrayEquals(new int[0], index.search("cartgarden"));
+    }
+
+    @Test
+    void reindexesSavedAndRemovesDeletedProducts() {
+        index.onCatalogRestored(List.of(product(1, "Hammer", "GDN-0011"), product(2, "Garden Cart", "GDN-0023")));
+        Product renamed = product(1, "Mallet", "GDN-0011");
+
+        index.onProductSaved(product(1, "Hammer", "GDN-0011"), renamed);
+        index.onProductDeleted(product(2, "Garden Cart", "GDN-0023"));
+
+        assertArrayEquals(new int[0], index.search("hammer"));
+        assertArrayEquals(new int[]{1}, index.search("mallet"));
+        assertArrayEquals(new int[]{1}, index.search("gdn"));
+        assertArrayEquals(new int[0], index.search("cart"));
+    }
+
+    @Test
+    void keepsChangesPublishedDuringRebuild() {
+        // The page was read before product 2 was renamed, product 3 deleted and product 4 added
+        List<Product> stalePage = List.of(product(1, "Hammer", "GDN-0011"), product(2, "Garden Cart", "GDN-0023"),
+                product(3, "Saw", "TBX-0022"));
+        when(productRepository.findPageAfter(eq(0), any(Pageable.class))).thenAnswer(invocation -> {
+            assertFalse(index.isReady());
+            index.onProductSaved(stalePage.get(1), product(2, "Wheelbarrow", "GDN-0023"));
+            index.onProductDeleted(stalePage.get(2));
+            index.onProductSaved(null, product(4, "Leaf Rake", "GDN-0077"));
+            return stalePage;
+        });
+
+        index.rebuild();
+
+        assertTrue(index.isReady());
+        assertArrayEquals(new int[]{1, 2, 4}, index.search("gdn"));
+        assertArrayEquals(new int[]{2}, index.search("wheel"));
+        assertArrayEquals(new int[0], index.search("cart"));
+        assertArrayEquals(new int[0], index.search("saw"));
+    }
+
+    @Test
+    void staysUnreadyWhenRebuildFails() {
+        index.onCatalogRestored(List.of(product(1, "Hammer", "GDN-0011")));
+        when(productRepository.findPageAfter(eq(0), any(Pageable.class)))
+                .thenThrow(new IllegalStateException("database down"));
+
+        assertThrows(IllegalStateException.class, index::rebuild);
+
+        // Searches fall back to the database
+        assertFalse(index.isReady());
+    }
+
+    private static Product product(Integer productId, String productName, String productCode) {
+        return new Product(productId, productName, productCode, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,207 @@
+package com.vaadin.application.service;
+
+import com.vaadin.application.cache.ProductCacheManager;
+import com.vaadin.application.error.ProductConflictException;
+import com.vaadin.application.model.Product;
+import com.vaadin.application.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Coalescing, conflicts and backpressure of the write-behind queue against a recording repository
+ *
+ * @author tailam
+ */
+class ProductWriteBehindQueueTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductCacheManager productCacheManager = mock(ProductCacheManager.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Rows as written: productId -> version, a versioned update of another version changes nothing
+    private final Map<Integer, Integer> versions = Collections.synchronizedMap(new HashMap<>());
+    private final List<Write> writes = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(productCacheManager.getCachedProduct(anyInt()))
+                .thenAnswer(invocation -> product(invocation.getArgument(0), 0, "cached"));
+        when(productCacheManager.publishing(any(Supplier.class)))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(0).get());
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(productRepository.updateFields(any(Product.class), anyCollection())).thenAnswer(invocation -> {
+            Product product = invocation.getArgument(0);
+            writes.add(new Write(product, invocation.getArgument(1)));
+            if (!versions.getOrDefault(product.getProductId(), 0).equals(product.getVersion())) {
+                return 0;
+            }
+            versions.put(product.getProductId(), product.getVersion() + 1);
+            return 1;
+        });
+    }
+
+    @Test
+    void mergesEditsOfQueuedProductIntoOneWrite() {
+        ProductWriteBehindQueue queue = queue(10, 100);
+
+        Product first = queue.submit(product(1, 0, "first"), List.of("productName"));
+        Product second = queue.submit(edit(first, 1.5f), List.of("price"));
+        queue.flush();
+
+        assertEquals(1, first.getVersion());
+        assertEquals(1, second.getVersion());
+        assertEquals(1, writes.size());
+        assertEquals(0, writes.get(0).product.getVersion());
+        assertEquals(1.5f, writes.get(0).product.getPrice());
+        assertEquals(Set.of("productName", "price"), writes.get(0).fields);
+        assertEquals(1, meterRegistry.counter("product.write.behind.coalesced").count());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    void queuesEditOfProductBeingWrittenAfterTheRunningWrite() throws Exception {
+        ProductWriteBehindQueue queue = queue(10, 100);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Product first = queue.submit(product(1, 0, "first"), List.of("productName"));
+        doAnswer(invocation -> {
+            writing.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+        }).when(transactionTemplate).execute(any());
+        Thread flush = new Thread(queue::flush);
+        flush.start();
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+
+        // Checked against the version the running write gives the product, not the database or the cache
+        Product second = queue.submit(edit(first, 2.5f), List.of("price"));
+        assertThrows(ProductConflictException.class, () -> queue.submit(product(1, 0, "stale"), List.of("price")));
+        assertTrue(queue.hasPendingEdit(1));
+        assertEquals(1, queue.size());
+        release.countDown();
+        flush.join(10000);
+        queue.flush();
+
+        assertEquals(2, second.getVersion());
+        assertEquals(2, writes.size());
+        assertEquals(0, writes.get(0).product.getVersion());
+        assertEquals(Set.of("productName"), writes.get(0).fields);
+        assertEquals(1, writes.get(1).product.getVersion());
+        assertEquals(2.5f, writes.get(1).product.getPrice());
+        assertEquals(Set.of("price"), writes.get(1).fields);
+        assertEquals(2, versions.get(1));
+        assertEquals(0, meterRegistry.counter("product.write.behind.coalesced").count());
+        assertFalse(queue.hasPendingEdit(1));
+        verify(productCacheManager, never()).applyChanges(anyCollection());
+    }
+
+    @Test
+    void reloadsProductWhoseWriteConflicts() {
+        ProductWriteBehindQueue queue = queue(10, 100);
+        queue.submit(product(1, 0, "lost"), List.of("productName"));
+        queue.submit(product(2, 0, "kept"), List.of("productName"));
+        // Changed behind the caches meanwhile
+        versions.put(1, 5);
+        List<Boolean> pendingWhenReloaded = new ArrayList<>();
+        when(productCacheManager.applyChanges(anyCollection())).thenAnswer(invocation -> {
+            pendingWhenReloaded.add(queue.hasPendingEdit(1));
+            return 1;
+        });
+
+        queue.flush();
+
+        verify(productCacheManager).applyChanges(List.of(1));
+        assertEquals(List.of(false), pendingWhenReloaded);
+        assertEquals(1, meterRegistry.counter("product.write.behind.lost").count());
+        assertEquals(5, versions.get(1));
+        assertEquals(1, versions.get(2));
+    }
+
+    @Test
+    void flushesFullQueueBeforeTakingEdit() {
+        ProductWriteBehindQueue queue = queue(2, 100);
+        queue.submit(product(1, 0, "one"), List.of("productName"));
+        queue.submit(product(2, 0, "two"), List.of("productName"));
+
+        Product third = queue.submit(product(3, 0, "three"), List.of("productName"));
+
+        assertEquals(1, third.getVersion());
+        assertEquals(2, writes.size());
+        assertEquals(1, writes.get(0).product.getProductId());
+        assertEquals(2, writes.get(1).product.getProductId());
+        assertEquals(1, queue.size());
+        assertTrue(queue.hasPendingEdit(3));
+        assertEquals(1, meterRegistry.counter("product.write.behind.backpressure").count());
+    }
+
+    @Test
+    void schedulesFlushOnceQueueHoldsBatch() {
+        ProductWriteBehindQueue queue = queue(10, 2);
+        queue.submit(product(1, 0, "one"), List.of("productName"));
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+
+        queue.submit(product(2, 0, "two"), List.of("productName"));
+        queue.submit(product(3, 0, "three"), List.of("productName"));
+
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    private ProductWriteBehindQueue queue(int capacity, int batchSize) {
+        return new ProductWriteBehindQueue(productRepository, productCacheManager, List.of(), transactionTemplate,
+                taskScheduler, meterRegistry, capacity, batchSize, 500);
+    }
+
+    private static Product product(Integer productId, Integer version, String productName) {
+        Product product = new Product(productId, productName, "P-" + productId, null, null, 1f, 3f, null);
+        product.setVersion(version);
+        return product;
+    }
+
+    private static Product edit(Product saved, float price) {
+        Product product = new Product(saved);
+        product.setPrice(price);
+        return product;
+    }
+
+    private static final class Write {
+        private final Product product;
+        private final Set<String> fields;
+
+        private Write(Product product, Collection<String> fields) {
+            this.product = new Product(product);
+            this.fields = Set.copyOf(fields);
+        }
+    }
+}